@@ -0,0 +1,45 @@
+package pl.joannaszczesna.cashcard;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Starts the application on a random port with a fresh in-memory database for benchmark states.
+ * The demo users are seeded. Rate limiting is off, since every benchmark sends as many requests as it can
+ * as a single owner.
+ */
+final class BenchmarkContexts {
+    private static final int INSERT_CHUNK = 10_000;
+
+    private BenchmarkContexts() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(CashcardApplication.class)
+                .profiles("demo")
+                .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=warn",
+                        "cashcard.rate-limit.enabled=false")
+                .properties(properties)
+                .run();
+    }
+
+    /**
+     * Inserts {@code rows} cards; the card inserted as the i-th one (0-based) gets id {@code i + 1}.
+     */
+    static void seed(JdbcTemplate jdbcTemplate, int rows, IntFunction<String> ownerOfRow) {
+        for (int from = 0; from < rows; from += INSERT_CHUNK) {
+            int to = Math.min(from + INSERT_CHUNK, rows);
+            List<Object[]> chunk = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                chunk.add(new Object[]{BigDecimal.valueOf(i % 100_000, CashCard.AMOUNT_SCALE), ownerOfRow.apply(i)});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO cash_card (amount, owner) VALUES (?, ?)", chunk);
+        }
+    }
+}
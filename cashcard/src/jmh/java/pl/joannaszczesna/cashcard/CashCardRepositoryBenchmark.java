@@ -0,0 +1,70 @@
+package pl.joannaszczesna.cashcard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owner-scoped repository lookups against H2 seeded with a growing number of cards, 100 per owner.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CashCardRepositoryBenchmark {
+    private static final int CARDS_PER_OWNER = 100;
+
+    @Param({"1000", "100000", "1000000"})
+    int rows;
+
+    private ConfigurableApplicationContext context;
+    private CashCardRepository cashCardRepository;
+    private String[] owners;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContexts.start();
+        owners = new String[Math.max(1, rows / CARDS_PER_OWNER)];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = "owner-" + i;
+        }
+        BenchmarkContexts.seed(context.getBean(JdbcTemplate.class), rows, i -> owners[i % owners.length]);
+        cashCardRepository = context.getBean(CashCardRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CashCard findByIdAndOwner() {
+        int row = ThreadLocalRandom.current().nextInt(rows);
+        return cashCardRepository.findByIdAndOwner(row + 1L, owners[row % owners.length]);
+    }
+
+    @Benchmark
+    public Slice<CashCard> findByOwner() {
+        String owner = owners[ThreadLocalRandom.current().nextInt(owners.length)];
+        return cashCardRepository.findByOwner(owner, PageRequest.of(0, 20, Sort.by(Sort.Direction.ASC, "amount")));
+    }
+}
@@ -0,0 +1,125 @@
+package pl.joannaszczesna.cashcard;
+
+import jakarta.servlet.Filter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Requests through the whole security filter chain and controller with MockMvc.
+ * <p>
+ * {@code credentialsCacheTtl=0s} disables the credentials cache, so every Basic request pays for BCrypt.
+ * The contended benchmarks hammer a single card from 8 threads: a PUT that lost the race to another write
+ * is rejected with 409 by the optimistic lock and retried, an adjust is always applied.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+    private static final String USERNAME = "sarah1";
+
+    @Param({"5m", "0s"})
+    String credentialsCacheTtl;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private long cardId;
+    private String basicAuthorization;
+    private String bearerAuthorization;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContexts.start("cashcard.security.credentials-cache.ttl=" + credentialsCacheTtl);
+        cardId = context.getBean(CashCardRepository.class)
+                .save(new CashCard(null, new BigDecimal("100.00"), USERNAME))
+                .id();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .addFilters(context.getBean("springSecurityFilterChain", Filter.class))
+                .build();
+        basicAuthorization = "Basic " + Base64.getEncoder()
+                .encodeToString((USERNAME + ":abc123").getBytes(StandardCharsets.UTF_8));
+        bearerAuthorization = "Bearer " + context.getBean(TokenService.class)
+                .issue(UsernamePasswordAuthenticationToken.authenticated(USERNAME, null,
+                        AuthorityUtils.createAuthorityList("ROLE_CARD-OWNER")))
+                .token();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult getWithBasic() throws Exception {
+        return mockMvc.perform(get("/cashcards/{id}", cardId)
+                        .header(HttpHeaders.AUTHORIZATION, basicAuthorization))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getWithBearer() throws Exception {
+        return mockMvc.perform(get("/cashcards/{id}", cardId)
+                        .header(HttpHeaders.AUTHORIZATION, bearerAuthorization))
+                .andReturn();
+    }
+
+    /**
+     * Retries a PUT rejected with 409 until it is applied, so one operation is one applied update,
+     * as with {@link #adjustContended()}.
+     */
+    @Benchmark
+    @Threads(8)
+    public MvcResult putContended() throws Exception {
+        MvcResult result;
+        do {
+            result = mockMvc.perform(put("/cashcards/{id}", cardId)
+                            .header(HttpHeaders.AUTHORIZATION, bearerAuthorization)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"amount\": 100.01}"))
+                    .andReturn();
+        } while (result.getResponse().getStatus() == HttpStatus.CONFLICT.value());
+        return result;
+    }
+
+    @Benchmark
+    @Threads(8)
+    public MvcResult adjustContended() throws Exception {
+        return mockMvc.perform(post("/cashcards/{id}/adjust", cardId)
+                        .header(HttpHeaders.AUTHORIZATION, bearerAuthorization)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 0.01}"))
+                .andReturn();
+    }
+}
@@ -0,0 +1,109 @@
+package pl.joannaszczesna.cashcard;
+
+import jakarta.servlet.Filter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Latency of a balance adjustment, which records one ledger entry, with an empty ledger and with
+ * 1 000 000 entries already in it, under {@code async} and {@code sync} ledger durability.
+ * The contended variant adjusts from 8 threads, so {@code sync} requests share group commits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LedgerBenchmark {
+    private static final String USERNAME = "sarah1";
+    private static final int INSERT_CHUNK = 10_000;
+
+    @Param({"0", "1000000"})
+    int ledgerEntries;
+
+    @Param({"async", "sync"})
+    String durability;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private long cardId;
+    private String bearerAuthorization;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContexts.start("cashcard.ledger.durability=" + durability);
+        cardId = context.getBean(CashCardRepository.class)
+                .save(new CashCard(null, new BigDecimal("100.00"), USERNAME))
+                .id();
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        Timestamp createdAt = Timestamp.from(Instant.now());
+        for (int from = 0; from < ledgerEntries; from += INSERT_CHUNK) {
+            int to = Math.min(from + INSERT_CHUNK, ledgerEntries);
+            List<Object[]> chunk = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                chunk.add(new Object[]{cardId, BigDecimal.valueOf(i % 100, CashCard.AMOUNT_SCALE), createdAt});
+            }
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO cash_card_transaction (cash_card_id, owner, type, amount, created_at)
+                    VALUES (?, 'sarah1', 'ADJUST', ?, ?)""", chunk);
+        }
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .addFilters(context.getBean("springSecurityFilterChain", Filter.class))
+                .build();
+        bearerAuthorization = "Bearer " + context.getBean(TokenService.class)
+                .issue(UsernamePasswordAuthenticationToken.authenticated(USERNAME, null,
+                        AuthorityUtils.createAuthorityList("ROLE_CARD-OWNER")))
+                .token();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult adjust() throws Exception {
+        return mockMvc.perform(post("/cashcards/{id}/adjust", cardId)
+                        .header(HttpHeaders.AUTHORIZATION, bearerAuthorization)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 0.01}"))
+                .andReturn();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public MvcResult adjustContended() throws Exception {
+        return adjust();
+    }
+}
@@ -0,0 +1,77 @@
+package pl.joannaszczesna.cashcard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OFFSET paging versus keyset paging of one owner with 200 020 cards, on the first and on the 10 000th page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginationBenchmark {
+    private static final String OWNER = "sarah1";
+    private static final int PAGE_SIZE = 20;
+    private static final int ROWS = 10_001 * PAGE_SIZE;
+
+    @Param({"1", "10000"})
+    int page;
+
+    private ConfigurableApplicationContext context;
+    private CashCardRepository cashCardRepository;
+    private KeysetCursor cursor;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContexts.start();
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        BenchmarkContexts.seed(jdbcTemplate, ROWS, i -> OWNER);
+        cashCardRepository = context.getBean(CashCardRepository.class);
+        if (page > 1) {
+            cursor = jdbcTemplate.queryForObject(
+                    "SELECT amount, id FROM cash_card WHERE owner = ? ORDER BY amount, id LIMIT 1 OFFSET ?",
+                    (rs, rowNum) -> new KeysetCursor(rs.getBigDecimal(1), rs.getLong(2)),
+                    OWNER, (page - 1) * PAGE_SIZE - 1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Slice<CashCard> offset() {
+        return cashCardRepository.findByOwner(OWNER,
+                PageRequest.of(page - 1, PAGE_SIZE, Sort.by(Sort.Direction.ASC, "amount", "id")));
+    }
+
+    @Benchmark
+    public List<CashCard> keyset() {
+        if (cursor == null) {
+            return cashCardRepository.scrollByOwner(OWNER, PAGE_SIZE + 1);
+        }
+        return cashCardRepository.scrollByOwnerAfter(OWNER, cursor.amount(), cursor.id(), PAGE_SIZE + 1);
+    }
+}
@@ -0,0 +1,71 @@
+package pl.joannaszczesna.cashcard;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of verifying one request: a full BCrypt check, a cached credentials check and a bearer token check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordCheckBenchmark {
+    private static final String USERNAME = "sarah1";
+    private static final String PASSWORD = "abc123";
+
+    private PasswordEncoder passwordEncoder;
+    private String passwordHash;
+    private CachingAuthenticationProvider authenticationProvider;
+    private TokenService tokenService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        passwordEncoder = new BCryptPasswordEncoder();
+        passwordHash = passwordEncoder.encode(PASSWORD);
+        InMemoryUserDetailsManager users = new InMemoryUserDetailsManager(
+                User.withUsername(USERNAME).password(passwordHash).roles("CARD-OWNER").build());
+        authenticationProvider = new CachingAuthenticationProvider(users, passwordEncoder, 1000, Duration.ofMinutes(5),
+                new SimpleMeterRegistry());
+        Authentication authentication = cachedCredentials();
+        tokenService = new TokenService("", Duration.ofMinutes(15), Clock.systemUTC());
+        token = tokenService.issue(authentication).token();
+    }
+
+    @Benchmark
+    public boolean bcrypt() {
+        return passwordEncoder.matches(PASSWORD, passwordHash);
+    }
+
+    @Benchmark
+    public Authentication cachedCredentials() {
+        return authenticationProvider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated(USERNAME, PASSWORD));
+    }
+
+    @Benchmark
+    public Authentication bearerToken() {
+        return tokenService.verify(token);
+    }
+}
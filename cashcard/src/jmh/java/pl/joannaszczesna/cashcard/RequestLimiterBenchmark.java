@@ -0,0 +1,86 @@
+package pl.joannaszczesna.cashcard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Overhead the admission control adds to every request: the per-owner token bucket on its admitting and
+ * rejecting paths, with one and with 10 000 owners, and an acquire/release of the concurrency limit.
+ * The contended variants run 8 threads against the same state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestLimiterBenchmark {
+    private static final String OWNER = "sarah1";
+    private static final int OWNERS = 10_000;
+
+    private PrincipalRateLimiter unlimited;
+    private PrincipalRateLimiter exhausted;
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+    private String[] owners;
+
+    @State(Scope.Thread)
+    public static class OwnerIndex {
+        int next;
+    }
+
+    @Setup
+    public void setUp() {
+        unlimited = new PrincipalRateLimiter(1e9, 1_000_000, OWNERS * 2);
+        exhausted = new PrincipalRateLimiter(1, 1, OWNERS * 2);
+        exhausted.tryAcquire(OWNER);
+        concurrencyLimit = new AdaptiveConcurrencyLimit(1000, 10, 1000, TimeUnit.MILLISECONDS.toNanos(500));
+        owners = IntStream.range(0, OWNERS).mapToObj(i -> "owner-" + i).toArray(String[]::new);
+        for (String owner : owners) {
+            unlimited.tryAcquire(owner);
+        }
+    }
+
+    @Benchmark
+    public long admitOneOwner() {
+        return unlimited.tryAcquire(OWNER);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long admitOneOwnerContended() {
+        return unlimited.tryAcquire(OWNER);
+    }
+
+    @Benchmark
+    public long admitManyOwners(OwnerIndex index) {
+        index.next = (index.next + 1) % OWNERS;
+        return unlimited.tryAcquire(owners[index.next]);
+    }
+
+    @Benchmark
+    public long rejectOneOwner() {
+        return exhausted.tryAcquire(OWNER);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean concurrencyLimitContended() {
+        boolean acquired = concurrencyLimit.tryAcquire();
+        if (acquired) {
+            concurrencyLimit.release(1_000);
+        }
+        return acquired;
+    }
+}
@@ -0,0 +1,73 @@
+package pl.joannaszczesna.cashcard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Write throughput of card inserts and balance adjustments from 16 threads spread over 1 000 owners,
+ * with all cards in one database and partitioned across 2 and 4 databases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardingBenchmark {
+    private static final int OWNERS = 1_000;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"1", "2", "4"})
+    int shards;
+
+    private ConfigurableApplicationContext context;
+    private CashCardRepository repository;
+    private String[] owners;
+    private long[] cardIds;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContexts.start("cashcard.shards.count=" + shards);
+        repository = context.getBean(CashCardRepository.class);
+        owners = IntStream.range(0, OWNERS).mapToObj(i -> "owner-" + i).toArray(String[]::new);
+        cardIds = new long[OWNERS];
+        for (int i = 0; i < OWNERS; i++) {
+            cardIds[i] = repository.save(new CashCard(null, AMOUNT, owners[i])).id();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public CashCard insert() {
+        return repository.save(new CashCard(null, AMOUNT, owners[ThreadLocalRandom.current().nextInt(OWNERS)]));
+    }
+
+    @Benchmark
+    @Threads(16)
+    public int adjust() {
+        int owner = ThreadLocalRandom.current().nextInt(OWNERS);
+        return repository.adjustAmount(cardIds[owner], owners[owner], AMOUNT);
+    }
+}
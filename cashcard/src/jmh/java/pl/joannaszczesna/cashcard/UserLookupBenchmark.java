@@ -0,0 +1,89 @@
+package pl.joannaszczesna.cashcard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.provisioning.JdbcUserDetailsManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User lookup during authentication with 1 000 and 1 000 000 users in the {@code users} table:
+ * straight from the database by primary key, and through the user cache for a hot set of 1 000 users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserLookupBenchmark {
+    private static final int INSERT_CHUNK = 10_000;
+    private static final int HOT_USERS = 1_000;
+    // BCrypt hash of "password"; lookups never check it
+    private static final String PASSWORD_HASH = "$2b$10$zCfNmqoog1kwHhu2Jt/Xzel0swVeeGvQRxKTL57UhjyTl7BKhFSPO";
+
+    @Param({"1000", "1000000"})
+    int users;
+
+    private ConfigurableApplicationContext context;
+    private UserDetailsService database;
+    private UserDetailsService cached;
+    private String[] usernames;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContexts.start();
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        usernames = new String[users];
+        for (int i = 0; i < users; i++) {
+            usernames[i] = "owner-" + i;
+        }
+        for (int from = 0; from < users; from += INSERT_CHUNK) {
+            int to = Math.min(from + INSERT_CHUNK, users);
+            List<Object[]> userRows = new ArrayList<>(to - from);
+            List<Object[]> authorityRows = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                userRows.add(new Object[]{usernames[i], PASSWORD_HASH});
+                authorityRows.add(new Object[]{usernames[i]});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO users (username, password, enabled) VALUES (?, ?, TRUE)", userRows);
+            jdbcTemplate.batchUpdate("INSERT INTO authorities (username, authority) VALUES (?, 'ROLE_CARD-OWNER')",
+                    authorityRows);
+        }
+        database = new JdbcUserDetailsManager(context.getBean(DataSource.class));
+        cached = context.getBean(UserDetailsService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserDetails databaseLookup() {
+        return database.loadUserByUsername(usernames[ThreadLocalRandom.current().nextInt(users)]);
+    }
+
+    @Benchmark
+    public UserDetails cachedLookup() {
+        return cached.loadUserByUsername(usernames[ThreadLocalRandom.current().nextInt(Math.min(users, HOT_USERS))]);
+    }
+}
@@ -0,0 +1,90 @@
+package pl.joannaszczesna.cashcard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * JSON vs CBOR vs Smile encoding and decoding of 1, 20 and 1 000 cards. {@code serialize} also reports the
+ * encoded size of the page as the {@code encodedBytes} secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    String format;
+
+    @Param({"1", "20", "1000"})
+    int pageSize;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private CashCard[] page;
+    private byte[] encodedPage;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+        writer = objectMapper.writerFor(CashCard[].class);
+        reader = objectMapper.readerFor(CashCard[].class);
+        page = LongStream.range(0, pageSize)
+                .mapToObj(id -> new CashCard(id, BigDecimal.valueOf(id * 137 % 100_000, 2), "sarah1"))
+                .toArray(CashCard[]::new);
+        encodedPage = writer.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] serialize(EncodedSize size) throws IOException {
+        byte[] encoded = writer.writeValueAsBytes(page);
+        size.encodedBytes = encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public CashCard[] deserialize() throws IOException {
+        return reader.readValue(encodedPage);
+    }
+
+    /**
+     * Holds the size of the last encoded page rather than a count, so the result is the size itself.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        public long encodedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            encodedBytes = 0;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package pl.joannaszczesna.cashcard;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Closed-loop HTTP load test of {@code GET /cashcards/{id}} against a running instance.
+ * <p>
+ * Every simulated client is a virtual thread sending one request after another for the given duration.
+ * Parameters are {@code key=value} arguments:
+ * <pre>
+ * url=http://localhost:8080 user=sarah1 password=abc123 clients=100,1000,10000 warmup=5s duration=30s
+ * </pre>
+ * Compare the servlet defaults with {@code --spring.profiles.active=virtual} and
+ * {@code --spring.profiles.active=reactive} by running the test against each of them.
+ * All clients share one owner, so start the server with
+ * {@code --spring.profiles.active=demo --cashcard.rate-limit.enabled=false}.
+ * Large client counts need enough file descriptors on both sides ({@code ulimit -n}).
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> parameters = parse(args);
+        URI baseUri = URI.create(parameters.getOrDefault("url", "http://localhost:8080"));
+        String authorization = "Basic " + Base64.getEncoder().encodeToString(
+                (parameters.getOrDefault("user", "sarah1") + ":" + parameters.getOrDefault("password", "abc123"))
+                        .getBytes(StandardCharsets.UTF_8));
+        int[] clientCounts = Arrays.stream(parameters.getOrDefault("clients", "100,1000,10000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        Duration warmup = parseDuration(parameters.getOrDefault("warmup", "5s"));
+        Duration duration = parseDuration(parameters.getOrDefault("duration", "30s"));
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        URI cardUri = createCashCard(httpClient, baseUri, authorization);
+
+        System.out.printf("%8s %10s %8s %12s %10s %10s %10s%n",
+                "clients", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+        for (int clients : clientCounts) {
+            run(httpClient, cardUri, authorization, clients, warmup);
+            Result result = run(httpClient, cardUri, authorization, clients, duration);
+            System.out.printf("%8d %10d %8d %12.1f %10.2f %10.2f %10.2f%n",
+                    clients, result.latencies().length, result.errors(),
+                    result.latencies().length / (duration.toNanos() / 1e9),
+                    percentileMillis(result.latencies(), 0.50),
+                    percentileMillis(result.latencies(), 0.99),
+                    percentileMillis(result.latencies(), 1.0));
+        }
+    }
+
+    private static URI createCashCard(HttpClient httpClient, URI baseUri, String authorization) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/cashcards"))
+                .header("Authorization", authorization)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"amount\": 100.00}"))
+                .build();
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("Cannot create the cash card under test: HTTP " + response.statusCode());
+        }
+        return baseUri.resolve(response.headers().firstValue("Location").orElseThrow());
+    }
+
+    private static Result run(HttpClient httpClient, URI cardUri, String authorization, int clients, Duration duration)
+            throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(cardUri)
+                .header("Authorization", authorization)
+                .GET()
+                .build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<Result>> futures = new ArrayList<>(clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> client(httpClient, request, deadline)));
+            }
+        }
+        long errors = 0;
+        List<long[]> latencies = new ArrayList<>(clients);
+        for (Future<Result> future : futures) {
+            errors += future.get().errors();
+            latencies.add(future.get().latencies());
+        }
+        long[] merged = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(merged, errors);
+    }
+
+    private static Result client(HttpClient httpClient, HttpRequest request, long deadline) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        long errors = 0;
+        while (System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) {
+                    errors++;
+                    continue;
+                }
+            } catch (Exception ex) {
+                errors++;
+                continue;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+        }
+        return new Result(Arrays.copyOf(latencies, count), errors);
+    }
+
+    private static double percentileMillis(long[] sortedLatencies, double percentile) {
+        if (sortedLatencies.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(index, 0)] / 1e6;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> parameters = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            parameters.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return parameters;
+    }
+
+    private static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value));
+    }
+
+    private record Result(long[] latencies, long errors) {
+    }
+}
@@ -0,0 +1,153 @@
+package pl.joannaszczesna.cashcard;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Cold start benchmark: launches the boot jar in a fresh JVM and measures the time from process start to the
+ * first {@code 200 OK} of {@code GET /cashcards/99}, which covers JVM startup, context refresh, schema
+ * initialization and the first authenticated request.
+ * <p>
+ * Parameters are {@code key=value} arguments; {@code ./gradlew startupBenchmark} fills in the paths:
+ * <pre>
+ * jar=build/libs/cashcard-0.0.1-SNAPSHOT.jar cds=build/cds modes=jar,cds aot=false profiles=demo runs=5
+ * </pre>
+ * Mode {@code jar} runs {@code java -jar} on the boot jar. Mode {@code cds} runs the extracted jar with the
+ * archive of {@code ./gradlew cdsArchive}. {@code aot=true} (set by {@code -Paot}) enables the AOT generated
+ * bean definitions, and {@code profiles=demo,lazy} adds lazy initialization.
+ */
+public final class StartupBenchmark {
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+    private static final long POLL_MILLIS = 5;
+    private static final String CARD_SQL = "INSERT INTO cash_card (ID, AMOUNT, OWNER) VALUES (99, 123.45, 'sarah1');";
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> parameters = parse(args);
+        Path jar = Path.of(parameters.getOrDefault("jar", "build/libs/cashcard-0.0.1-SNAPSHOT.jar"));
+        Path cds = Path.of(parameters.getOrDefault("cds", "build/cds"));
+        List<String> modes = List.of(parameters.getOrDefault("modes", "jar,cds").split(","));
+        boolean aot = Boolean.parseBoolean(parameters.getOrDefault("aot", "false"));
+        String profiles = parameters.getOrDefault("profiles", "demo");
+        int runs = Integer.parseInt(parameters.getOrDefault("runs", "5"));
+
+        Path cardScript = Files.createTempFile("startup-benchmark", ".sql");
+        Files.writeString(cardScript, CARD_SQL);
+        try {
+            System.out.printf("%6s %6s %12s %5s %10s %10s %10s%n",
+                    "mode", "aot", "profiles", "runs", "min ms", "p50 ms", "max ms");
+            for (String mode : modes) {
+                long[] millis = new long[runs];
+                for (int i = 0; i < runs; i++) {
+                    millis[i] = timeToFirstRead(mode, jar, cds, aot, profiles, cardScript);
+                }
+                Arrays.sort(millis);
+                System.out.printf("%6s %6s %12s %5d %10d %10d %10d%n",
+                        mode, aot, profiles, runs, millis[0], millis[(runs - 1) / 2], millis[runs - 1]);
+            }
+        } finally {
+            Files.deleteIfExists(cardScript);
+        }
+    }
+
+    private static long timeToFirstRead(String mode, Path jar, Path cds, boolean aot, String profiles,
+                                        Path cardScript) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        if (mode.equals("cds")) {
+            // the archive only matches when the class path is the same as in the training run
+            processBuilder.directory(cds.toFile());
+            command.add("-XX:SharedArchiveFile=application.jsa");
+        } else if (!mode.equals("jar")) {
+            throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        if (aot) {
+            command.add("-Dspring.aot.enabled=true");
+        }
+        command.add("-jar");
+        command.add(mode.equals("cds") ? extractedJar(cds).getFileName().toString() : jar.toAbsolutePath().toString());
+        command.add("--server.port=" + port);
+        command.add("--spring.profiles.active=" + profiles);
+        command.add("--spring.sql.init.data-locations=classpath:demo-users.sql,file:" + cardScript.toAbsolutePath());
+        command.add("--spring.main.banner-mode=off");
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+
+        HttpClient httpClient = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/cashcards/99"))
+                .header("Authorization", "Basic " + Base64.getEncoder()
+                        .encodeToString("sarah1:abc123".getBytes(StandardCharsets.UTF_8)))
+                .timeout(TIMEOUT)
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        Process process = processBuilder.start();
+        try {
+            while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("The application exited with " + process.exitValue()
+                            + ": " + String.join(" ", command));
+                }
+                try {
+                    if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return (System.nanoTime() - start) / 1_000_000;
+                    }
+                } catch (ConnectException ex) {
+                    // not listening yet
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+            throw new IllegalStateException("No successful read within " + TIMEOUT + ": " + String.join(" ", command));
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static Path extractedJar(Path cds) throws IOException {
+        try (Stream<Path> files = Files.list(cds)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No extracted jar in " + cds
+                            + ", run ./gradlew cdsArchive first"));
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> parameters = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            parameters.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,6 @@
+package pl.joannaszczesna.cashcard;
+
+import java.time.Instant;
+
+record AccessToken(String token, Instant expiresAt) {
+}
@@ -0,0 +1,78 @@
+package pl.joannaszczesna.cashcard;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Additive-increase/multiplicative-decrease limit on the number of requests processed at once.
+ * <p>
+ * A request slower than the latency threshold means work is queueing up behind the database or the
+ * thread pool, so the limit shrinks by {@value #BACKOFF_RATIO}. While the limit is actually used
+ * (at least half of it in flight) every fast request raises it by one, up to the maximum.
+ */
+class AdaptiveConcurrencyLimit {
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.limit = new AtomicInteger(initialLimit);
+    }
+
+    /**
+     * @return {@code false} when the limit is reached; otherwise {@link #release(long)} must follow
+     */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a permit without adapting the limit, for requests whose latency says nothing about queueing.
+     */
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    void release(long latencyNanos) {
+        int wasInFlight = inFlight.getAndDecrement();
+        while (true) {
+            int current = limit.get();
+            int next;
+            if (latencyNanos > latencyThresholdNanos) {
+                next = Math.max(minLimit, (int) (current * BACKOFF_RATIO));
+            } else if (wasInFlight * 2 >= current) {
+                next = Math.min(maxLimit, current + 1);
+            } else {
+                return;
+            }
+            if (next == current || limit.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    int limit() {
+        return limit.get();
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,12 @@
+package pl.joannaszczesna.cashcard;
+
+import java.math.BigDecimal;
+
+/**
+ * Signed change of a card balance: positive amounts credit the card, negative amounts debit it.
+ */
+record BalanceAdjustment(BigDecimal amount) {
+    BalanceAdjustment {
+        amount = CashCard.scaled(amount);
+    }
+}
@@ -0,0 +1,8 @@
+package pl.joannaszczesna.cashcard;
+
+/**
+ * Outcome of one item of a batch request. {@code index} is the position of the item in the request
+ * and {@code status} the HTTP status the equivalent single-card request would have returned.
+ */
+record BatchItemResult(int index, Long id, int status) {
+}
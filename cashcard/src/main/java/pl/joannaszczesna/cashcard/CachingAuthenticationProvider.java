@@ -0,0 +1,149 @@
+package pl.joannaszczesna.cashcard;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsChecker;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.keygen.KeyGenerators;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Username/password authentication that remembers recently verified credentials.
+ * <p>
+ * A successful {@link PasswordEncoder} check stores a keyed HMAC digest of the presented password,
+ * so following requests with the same credentials are verified with one HMAC instead of a full BCrypt round.
+ * Entries expire after the configured TTL and are dropped as soon as the stored password hash of the user changes;
+ * {@link CachingUserDetailsManager} evicts them, together with the cached user, whenever a user is changed.
+ * <p>
+ * The verification time is recorded in the {@code cashcard.authentication} timer, tagged with the result:
+ * {@code cached}, {@code verified} (full password check) or {@code rejected}.
+ */
+class CachingAuthenticationProvider implements AuthenticationProvider {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String BAD_CREDENTIALS = "Bad credentials";
+    private static final String USER_NOT_FOUND_PASSWORD = "userNotFoundPassword";
+
+    private final UserDetailsService userDetailsService;
+    private final PasswordEncoder passwordEncoder;
+    private final ExpiringCache<String, VerifiedCredentials> verifiedCredentials;
+    private final SecretKeySpec digestKey;
+    private final UserDetailsChecker userDetailsChecker = new AccountStatusUserDetailsChecker();
+    private final Timer cachedTimer;
+    private final Timer verifiedTimer;
+    private final Timer rejectedTimer;
+    private volatile String userNotFoundEncodedPassword;
+
+    CachingAuthenticationProvider(UserDetailsService userDetailsService, PasswordEncoder passwordEncoder,
+                                  int maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this.userDetailsService = userDetailsService;
+        this.passwordEncoder = passwordEncoder;
+        this.verifiedCredentials = new ExpiringCache<>(maxSize, ttl);
+        this.digestKey = new SecretKeySpec(KeyGenerators.secureRandom(32).generateKey(), HMAC_ALGORITHM);
+        this.cachedTimer = authenticationTimer(meterRegistry, "cached");
+        this.verifiedTimer = authenticationTimer(meterRegistry, "verified");
+        this.rejectedTimer = authenticationTimer(meterRegistry, "rejected");
+    }
+
+    private static Timer authenticationTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("cashcard.authentication")
+                .description("Time to verify username/password credentials")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) {
+        long start = System.nanoTime();
+        Timer timer = rejectedTimer;
+        try {
+            String username = authentication.getName();
+            if (authentication.getCredentials() == null) {
+                throw new BadCredentialsException(BAD_CREDENTIALS);
+            }
+            String presentedPassword = authentication.getCredentials().toString();
+            UserDetails user = loadUser(username, presentedPassword);
+            userDetailsChecker.check(user);
+
+            byte[] digest = digest(username, presentedPassword);
+            VerifiedCredentials cached = verifiedCredentials.get(username);
+            if (cached != null && !cached.passwordHash().equals(user.getPassword())) {
+                verifiedCredentials.remove(username);
+                cached = null;
+            }
+            if (cached == null || !MessageDigest.isEqual(cached.digest(), digest)) {
+                if (!passwordEncoder.matches(presentedPassword, user.getPassword())) {
+                    throw new BadCredentialsException(BAD_CREDENTIALS);
+                }
+                verifiedCredentials.put(username, new VerifiedCredentials(user.getPassword(), digest));
+                timer = verifiedTimer;
+            } else {
+                timer = cachedTimer;
+            }
+            return UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities());
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+
+    void evict(String username) {
+        verifiedCredentials.remove(username);
+    }
+
+    ExpiringCache<?, ?> cache() {
+        return verifiedCredentials;
+    }
+
+    private UserDetails loadUser(String username, String presentedPassword) {
+        try {
+            return userDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException ex) {
+            // keep the response time of unknown users close to the one of a wrong password
+            passwordEncoder.matches(presentedPassword, userNotFoundEncodedPassword());
+            throw new BadCredentialsException(BAD_CREDENTIALS);
+        }
+    }
+
+    private String userNotFoundEncodedPassword() {
+        String encoded = userNotFoundEncodedPassword;
+        if (encoded == null) {
+            encoded = passwordEncoder.encode(USER_NOT_FOUND_PASSWORD);
+            userNotFoundEncodedPassword = encoded;
+        }
+        return encoded;
+    }
+
+    private byte[] digest(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(digestKey);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Cannot compute credentials digest", ex);
+        }
+    }
+
+    private record VerifiedCredentials(String passwordHash, byte[] digest) {
+    }
+}
@@ -0,0 +1,73 @@
+package pl.joannaszczesna.cashcard;
+
+import org.springframework.security.authentication.CachingUserDetailsService;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.provisioning.UserDetailsManager;
+
+import java.util.function.Consumer;
+
+/**
+ * Loads users through a {@link UserCache} and drops a user from it, and from the verified credentials of
+ * {@link CachingAuthenticationProvider}, as soon as they are updated, deleted or change their password.
+ * A changed password or a disabled account is therefore refused on the next request, not after the TTL.
+ */
+class CachingUserDetailsManager implements UserDetailsManager {
+    private final UserDetailsManager delegate;
+    private final CachingUserDetailsService cachedUsers;
+    private final UserCache userCache;
+    private final Consumer<String> evictCredentials;
+
+    CachingUserDetailsManager(UserDetailsManager delegate, UserCache userCache, Consumer<String> evictCredentials) {
+        this.delegate = delegate;
+        this.cachedUsers = new CachingUserDetailsService(delegate);
+        this.cachedUsers.setUserCache(userCache);
+        this.userCache = userCache;
+        this.evictCredentials = evictCredentials;
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) {
+        return cachedUsers.loadUserByUsername(username);
+    }
+
+    @Override
+    public void createUser(UserDetails user) {
+        delegate.createUser(user);
+        evict(user.getUsername());
+    }
+
+    @Override
+    public void updateUser(UserDetails user) {
+        delegate.updateUser(user);
+        evict(user.getUsername());
+    }
+
+    @Override
+    public void deleteUser(String username) {
+        delegate.deleteUser(username);
+        evict(username);
+    }
+
+    /**
+     * Changes the password of the current user, see {@link UserDetailsManager#changePassword}.
+     */
+    @Override
+    public void changePassword(String oldPassword, String newPassword) {
+        Authentication currentUser = SecurityContextHolder.getContext().getAuthentication();
+        delegate.changePassword(oldPassword, newPassword);
+        evict(currentUser.getName());
+    }
+
+    @Override
+    public boolean userExists(String username) {
+        return delegate.userExists(username);
+    }
+
+    private void evict(String username) {
+        userCache.removeUserFromCache(username);
+        evictCredentials.accept(username);
+    }
+}
@@ -1,5 +1,33 @@
 package pl.joannaszczesna.cashcard;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
 
-record CashCard(@Id Long id, Double amount, String owner) {
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * @param amount  exact decimal with {@value #AMOUNT_SCALE} fraction digits; values with more digits are rejected
+ * @param version bumped by every write of the row; {@code null} for a card that has not been saved yet.
+ *                Not part of the JSON body, clients see it as the card's {@code ETag}.
+ */
+@Table("cash_card")
+record CashCard(@Id Long id, BigDecimal amount, String owner, @Version @JsonIgnore Long version) {
+    static final int AMOUNT_SCALE = 2;
+
+    CashCard {
+        amount = scaled(amount);
+    }
+
+    CashCard(Long id, BigDecimal amount, String owner) {
+        this(id, amount, owner, null);
+    }
+
+    /**
+     * @throws ArithmeticException when the amount has more than {@value #AMOUNT_SCALE} fraction digits
+     */
+    static BigDecimal scaled(BigDecimal amount) {
+        return amount == null ? null : amount.setScale(AMOUNT_SCALE, RoundingMode.UNNECESSARY);
+    }
 }
@@ -0,0 +1,227 @@
+package pl.joannaszczesna.cashcard;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates, updates and deletes many cards of one owner with JDBC batch statements in a single transaction.
+ * Created and updated balances go to the {@link CashCardLedger} once the transaction has committed.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class CashCardBatchService {
+    private static final String INSERT = "INSERT INTO cash_card (amount, owner) VALUES (?, ?)";
+    private static final String UPDATE = "UPDATE cash_card SET amount = ?, version = version + 1 WHERE id = ? AND owner = ?";
+    private static final String DELETE = "DELETE FROM cash_card WHERE id = ? AND owner = ?";
+    private static final String SELECT_OWNED_IDS = "SELECT id FROM cash_card WHERE owner = :owner AND id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final CashCardCache cashCardCache;
+    private final CashCardLedger cashCardLedger;
+
+    CashCardBatchService(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                         CashCardCache cashCardCache, CashCardLedger cashCardLedger) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.cashCardCache = cashCardCache;
+        this.cashCardLedger = cashCardLedger;
+    }
+
+    @Transactional
+    public List<BatchItemResult> create(List<CashCard> cashCards, @ShardKey String owner) {
+        BatchItemResult[] results = new BatchItemResult[cashCards.size()];
+        List<Integer> accepted = new ArrayList<>(cashCards.size());
+        for (int i = 0; i < cashCards.size(); i++) {
+            if (cashCards.get(i) == null || cashCards.get(i).amount() == null) {
+                results[i] = new BatchItemResult(i, null, HttpStatus.BAD_REQUEST.value());
+            } else {
+                accepted.add(i);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return Arrays.asList(results);
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setObject(1, cashCards.get(accepted.get(i)).amount());
+                        ps.setString(2, owner);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return accepted.size();
+                    }
+                },
+                keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<CashCardTransaction> transactions = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            int index = accepted.get(i);
+            Long id = ((Number) keys.get(i).get("ID")).longValue();
+            results[index] = new BatchItemResult(index, id, HttpStatus.CREATED.value());
+            transactions.add(CashCardTransaction.of(CashCardTransaction.Type.CREATE, id, owner,
+                    cashCards.get(index).amount()));
+        }
+        recordAfterCommit(transactions);
+        return Arrays.asList(results);
+    }
+
+    @Transactional
+    public List<BatchItemResult> update(List<CashCard> cashCards, @ShardKey String owner) {
+        BatchItemResult[] results = new BatchItemResult[cashCards.size()];
+        Set<Long> ownedIds = findOwnedIds(cashCards.stream()
+                .filter(cashCard -> cashCard != null && cashCard.id() != null)
+                .map(CashCard::id)
+                .toList(), owner);
+        List<Integer> accepted = new ArrayList<>(cashCards.size());
+        for (int i = 0; i < cashCards.size(); i++) {
+            CashCard cashCard = cashCards.get(i);
+            if (cashCard == null || cashCard.id() == null || cashCard.amount() == null) {
+                results[i] = new BatchItemResult(i, cashCard == null ? null : cashCard.id(), HttpStatus.BAD_REQUEST.value());
+            } else if (!ownedIds.contains(cashCard.id())) {
+                results[i] = new BatchItemResult(i, cashCard.id(), HttpStatus.NOT_FOUND.value());
+            } else {
+                accepted.add(i);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return Arrays.asList(results);
+        }
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                CashCard cashCard = cashCards.get(accepted.get(i));
+                ps.setObject(1, cashCard.amount());
+                ps.setLong(2, cashCard.id());
+                ps.setString(3, owner);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return accepted.size();
+            }
+        });
+        collectWriteResults(accepted, counts, cashCards.stream().map(c -> c == null ? null : c.id()).toList(),
+                owner, results);
+        List<CashCardTransaction> transactions = new ArrayList<>(accepted.size());
+        for (int index : accepted) {
+            if (results[index].status() == HttpStatus.NO_CONTENT.value()) {
+                CashCard cashCard = cashCards.get(index);
+                transactions.add(CashCardTransaction.of(CashCardTransaction.Type.UPDATE, cashCard.id(), owner,
+                        cashCard.amount()));
+            }
+        }
+        recordAfterCommit(transactions);
+        return Arrays.asList(results);
+    }
+
+    @Transactional
+    public List<BatchItemResult> delete(List<Long> ids, @ShardKey String owner) {
+        BatchItemResult[] results = new BatchItemResult[ids.size()];
+        Set<Long> ownedIds = findOwnedIds(ids, owner);
+        List<Integer> accepted = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if (id == null) {
+                results[i] = new BatchItemResult(i, null, HttpStatus.BAD_REQUEST.value());
+            } else if (!ownedIds.contains(id)) {
+                results[i] = new BatchItemResult(i, id, HttpStatus.NOT_FOUND.value());
+            } else {
+                accepted.add(i);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return Arrays.asList(results);
+        }
+        int[] counts = jdbcTemplate.batchUpdate(DELETE, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, ids.get(accepted.get(i)));
+                ps.setString(2, owner);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return accepted.size();
+            }
+        });
+        collectWriteResults(accepted, counts, ids, owner, results);
+        return Arrays.asList(results);
+    }
+
+    private Set<Long> findOwnedIds(List<Long> ids, String owner) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("owner", owner)
+                .addValue("ids", ids);
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList(SELECT_OWNED_IDS, parameters, Long.class));
+    }
+
+    private void collectWriteResults(List<Integer> accepted, int[] counts, List<Long> ids, String owner,
+                                     BatchItemResult[] results) {
+        List<Long> writtenIds = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            int index = accepted.get(i);
+            Long id = ids.get(index);
+            // a card deleted concurrently after the ownership check reports 0 rows
+            if (counts[i] == 0) {
+                results[index] = new BatchItemResult(index, id, HttpStatus.NOT_FOUND.value());
+            } else {
+                results[index] = new BatchItemResult(index, id, HttpStatus.NO_CONTENT.value());
+                writtenIds.add(id);
+            }
+        }
+        evictAfterCommit(writtenIds, owner);
+    }
+
+    private void evictAfterCommit(List<Long> ids, String owner) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ids.forEach(id -> cashCardCache.evict(id, owner));
+            }
+        });
+    }
+
+    private void recordAfterCommit(List<CashCardTransaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cashCardLedger.record(transactions);
+            }
+        });
+    }
+}
@@ -0,0 +1,128 @@
+package pl.joannaszczesna.cashcard;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-through cache of owner-scoped card lookups in front of {@link CashCardRepository}.
+ * <p>
+ * Writes go to the database first and evict the entry before returning. A reader which loaded the card
+ * before the write committed must not put that stale copy back: every key stripe keeps a generation that
+ * each eviction bumps, and a loaded card is cached only when the generation did not move during the load.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class CashCardCache implements MeterBinder {
+    private static final int STRIPES = 64;
+
+    private final CashCardRepository cashCardRepository;
+    private final ExpiringCache<Key, CashCard> cashCards;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    CashCardCache(CashCardRepository cashCardRepository,
+                  @Value("${cashcard.cache.cards.max-size}") int maxSize,
+                  @Value("${cashcard.cache.cards.ttl}") Duration ttl) {
+        this.cashCardRepository = cashCardRepository;
+        this.cashCards = new ExpiringCache<>(maxSize, ttl);
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    CashCard findByIdAndOwner(Long id, String owner) {
+        Key key = new Key(id, owner);
+        CashCard cached = cashCards.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        int stripe = key.stripe();
+        long generation = generations.get(stripe);
+        CashCard loaded = cashCardRepository.findByIdAndOwner(id, owner);
+        if (loaded != null) {
+            locks[stripe].lock();
+            try {
+                if (generations.get(stripe) == generation) {
+                    cashCards.put(key, loaded);
+                }
+            } finally {
+                locks[stripe].unlock();
+            }
+        }
+        return loaded;
+    }
+
+    boolean existsByIdAndOwner(Long id, String owner) {
+        return findByIdAndOwner(id, owner) != null;
+    }
+
+    CashCard save(CashCard cashCard) {
+        try {
+            return cashCardRepository.save(cashCard);
+        } finally {
+            if (cashCard.id() != null) {
+                evict(cashCard.id(), cashCard.owner());
+            }
+        }
+    }
+
+    /**
+     * Deletes the card only if it still has the version of the given copy.
+     *
+     * @throws OptimisticLockingFailureException when the card was changed or deleted in the meantime
+     */
+    void delete(CashCard cashCard) {
+        try {
+            cashCardRepository.delete(cashCard);
+        } finally {
+            evict(cashCard.id(), cashCard.owner());
+        }
+    }
+
+    void deleteByIdAndOwner(Long id, String owner) {
+        try {
+            cashCardRepository.deleteByIdAndOwner(id, owner);
+        } finally {
+            evict(id, owner);
+        }
+    }
+
+    /**
+     * Must be called after every write of the card that bypasses this cache, once the write is committed.
+     */
+    void evict(Long id, String owner) {
+        Key key = new Key(id, owner);
+        int stripe = key.stripe();
+        locks[stripe].lock();
+        try {
+            generations.incrementAndGet(stripe);
+            cashCards.remove(key);
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    ExpiringCache<?, ?> cache() {
+        return cashCards;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExpiringCacheMetrics(cashCards, "cashcards", Tags.empty()).bindTo(registry);
+    }
+
+    private record Key(Long id, String owner) {
+        int stripe() {
+            return Long.hashCode(id) & (STRIPES - 1);
+        }
+    }
+}
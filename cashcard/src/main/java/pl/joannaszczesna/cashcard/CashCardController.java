@@ -1,46 +1,120 @@
 package pl.joannaszczesna.cashcard;
 
-import org.springframework.data.domain.Page;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
 import java.net.URI;
 import java.security.Principal;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 
 @RestController
 @RequestMapping("/cashcards")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class CashCardController {
+    private static final int MAX_SCROLL_SIZE = 1000;
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final CashCardRepository cashCardRepository;
+    private final CashCardCache cashCardCache;
+    private final CashCardBatchService cashCardBatchService;
+    private final CashCardExporter cashCardExporter;
+    private final IdempotentCreations idempotentCreations;
+    private final CashCardLedger cashCardLedger;
+    private final CashCardTransactionRepository cashCardTransactionRepository;
+    private final int maxBatchSize;
 
-    private CashCardController(CashCardRepository cashCardRepository) {
+    private CashCardController(CashCardRepository cashCardRepository, CashCardCache cashCardCache,
+                               CashCardBatchService cashCardBatchService, CashCardExporter cashCardExporter,
+                               IdempotentCreations idempotentCreations, CashCardLedger cashCardLedger,
+                               CashCardTransactionRepository cashCardTransactionRepository,
+                               @Value("${cashcard.batch.max-size}") int maxBatchSize) {
         this.cashCardRepository = cashCardRepository;
+        this.cashCardCache = cashCardCache;
+        this.cashCardBatchService = cashCardBatchService;
+        this.cashCardExporter = cashCardExporter;
+        this.idempotentCreations = idempotentCreations;
+        this.cashCardLedger = cashCardLedger;
+        this.cashCardTransactionRepository = cashCardTransactionRepository;
+        this.maxBatchSize = maxBatchSize;
     }
 
     private CashCard findCashCard(Long requestedId, Principal principal) {
-        return cashCardRepository.findByIdAndOwner(requestedId, principal.getName());
+        return cashCardCache.findByIdAndOwner(requestedId, principal.getName());
+    }
+
+    private CashCard create(CashCard cashCard) {
+        CashCard savedCashCard = cashCardCache.save(cashCard);
+        recordCreation(savedCashCard);
+        return savedCashCard;
+    }
+
+    private void recordCreation(CashCard savedCashCard) {
+        cashCardLedger.record(CashCardTransaction.Type.CREATE, savedCashCard.id(), savedCashCard.owner(),
+                savedCashCard.amount());
     }
 
+    /**
+     * A request whose {@code If-None-Match} holds the current {@code ETag} gets 304 without a body.
+     */
     @GetMapping("/{requestedId}")
-    private ResponseEntity<CashCard> findById(@PathVariable Long requestedId, Principal principal) {
+    private ResponseEntity<CashCard> findById(@PathVariable Long requestedId,
+                                              @RequestHeader(name = HttpHeaders.ACCEPT, required = false)
+                                              String accept,
+                                              Principal principal) {
         CashCard cashCard = findCashCard(requestedId, principal);
         if (cashCard != null) {
-            return ResponseEntity.ok(cashCard);
+            return ResponseEntity.ok()
+                    .eTag(CashCardETags.of(cashCard, accept))
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(cashCard);
         }
         return ResponseEntity.notFound().build();
     }
 
+    /**
+     * A retry carrying the {@code Idempotency-Key} of an earlier request gets that request's {@code Location}
+     * without creating another card; reusing a key for a different amount is rejected with 422. A retry that
+     * arrives while the first request is still running waits for it, and gets 409 with {@code Retry-After}
+     * when that takes longer than {@code cashcard.idempotency.wait-timeout}.
+     */
     @PostMapping
-    private ResponseEntity<Void> createCashCard(@RequestBody CashCard newCashCardRequest, UriComponentsBuilder ucb,
+    private ResponseEntity<Void> createCashCard(@RequestBody CashCard newCashCardRequest,
+                                                @RequestHeader(name = IDEMPOTENCY_KEY, required = false)
+                                                String idempotencyKey,
+                                                UriComponentsBuilder ucb,
                                                 Principal principal) {
         CashCard cashCardWithOwner = new CashCard(null, newCashCardRequest.amount(), principal.getName());
-        CashCard savedCashCard = cashCardRepository.save(cashCardWithOwner);
+        CashCard savedCashCard;
+        if (idempotencyKey == null) {
+            savedCashCard = create(cashCardWithOwner);
+        } else {
+            Optional<CashCard> created = idempotentCreations.create(principal.getName(), idempotencyKey,
+                    () -> cashCardCache.save(cashCardWithOwner), this::recordCreation);
+            if (created.isEmpty()) {
+                // the first request with this key is still running
+                return ResponseEntity.status(HttpStatus.CONFLICT).header(HttpHeaders.RETRY_AFTER, "1").build();
+            }
+            savedCashCard = created.get();
+            if (!Objects.equals(savedCashCard.amount(), cashCardWithOwner.amount())) {
+                return ResponseEntity.unprocessableEntity().build();
+            }
+        }
         URI locationOfNewCashCard = ucb
                 .path("cashcards/{id}")
                 .buildAndExpand(savedCashCard.id())
@@ -58,38 +132,195 @@ public class CashCardController {
     }
 
     @GetMapping
-    private ResponseEntity<List<CashCard>> findAll(Pageable pageable, Principal principal) {
-        Page<CashCard> page = cashCardRepository.findByOwner(principal.getName(),
+    private ResponseEntity<List<CashCard>> findAll(Pageable pageable,
+                                                   @RequestHeader(name = HttpHeaders.ACCEPT, required = false)
+                                                   String accept,
+                                                   Principal principal) {
+        Slice<CashCard> page = cashCardRepository.findByOwner(principal.getName(),
                 PageRequest.of(
                         pageable.getPageNumber(),
                         pageable.getPageSize(),
                         pageable.getSortOr(Sort.by(Sort.Direction.ASC, "amount"))
                 ));
-        return ResponseEntity.ok(page.getContent());
+        return ResponseEntity.ok()
+                .eTag(CashCardETags.of(page.getContent(), accept))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(page.getContent());
+    }
+
+    @GetMapping("/summary")
+    private ResponseEntity<CashCardSummary> summary(Principal principal) {
+        return ResponseEntity.ok(cashCardRepository.summarizeByOwner(principal.getName()));
+    }
+
+    @GetMapping("/scroll")
+    private ResponseEntity<Scroll<CashCard>> scroll(@RequestParam(required = false) String cursor,
+                                                    @RequestParam(defaultValue = "20") int size,
+                                                    Principal principal) {
+        int limit = Math.min(Math.max(size, 1), MAX_SCROLL_SIZE);
+        List<CashCard> cashCards;
+        if (cursor == null || cursor.isEmpty()) {
+            cashCards = cashCardRepository.scrollByOwner(principal.getName(), limit + 1);
+        } else {
+            KeysetCursor after;
+            try {
+                after = KeysetCursor.decode(cursor);
+            } catch (IllegalArgumentException ex) {
+                return ResponseEntity.badRequest().build();
+            }
+            cashCards = cashCardRepository.scrollByOwnerAfter(principal.getName(), after.amount(), after.id(), limit + 1);
+        }
+        return ResponseEntity.ok(Scroll.of(cashCards, limit, cashCard -> KeysetCursor.after(cashCard).encode()));
+    }
+
+    /**
+     * Balance changes of the card, newest first. With {@code async} ledger durability a change shows up
+     * shortly after the request that made it has returned.
+     */
+    @GetMapping("/{requestedId}/transactions")
+    private ResponseEntity<Scroll<CashCardTransaction>> transactions(@PathVariable Long requestedId,
+                                                                     @RequestParam(required = false) String cursor,
+                                                                     @RequestParam(defaultValue = "20") int size,
+                                                                     Principal principal) {
+        if (!cashCardCache.existsByIdAndOwner(requestedId, principal.getName())) {
+            return ResponseEntity.notFound().build();
+        }
+        int limit = Math.min(Math.max(size, 1), MAX_SCROLL_SIZE);
+        List<CashCardTransaction> transactions;
+        if (cursor == null || cursor.isEmpty()) {
+            transactions = cashCardTransactionRepository.scrollByCashCard(requestedId, principal.getName(), limit + 1);
+        } else {
+            TransactionCursor before;
+            try {
+                before = TransactionCursor.decode(cursor);
+            } catch (IllegalArgumentException ex) {
+                return ResponseEntity.badRequest().build();
+            }
+            transactions = cashCardTransactionRepository.scrollByCashCardBefore(requestedId, principal.getName(),
+                    before.id(), limit + 1);
+        }
+        return ResponseEntity.ok(Scroll.of(transactions, limit,
+                transaction -> TransactionCursor.after(transaction).encode()));
+    }
+
+    @GetMapping("/export")
+    private void exportCashCards(@RequestParam(defaultValue = "ndjson") String format, Principal principal,
+                                 HttpServletResponse response) throws IOException {
+        CashCardExporter.Format exportFormat;
+        if (format.equalsIgnoreCase("ndjson")) {
+            exportFormat = CashCardExporter.Format.NDJSON;
+            response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        } else if (format.equalsIgnoreCase("json")) {
+            exportFormat = CashCardExporter.Format.JSON;
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        } else {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        cashCardExporter.export(principal.getName(), exportFormat, response.getOutputStream());
     }
 
+    /**
+     * The update is saved against the version that was read, so a concurrent write is never overwritten:
+     * it fails with 412 when the request carried {@code If-Match} and with 409 otherwise.
+     */
     @PutMapping("/{requestedId}")
     private ResponseEntity<Void> putCashCard(@PathVariable Long requestedId,
                                              @RequestBody CashCard cashCardUpdate,
+                                             @RequestHeader(name = HttpHeaders.IF_MATCH, required = false)
+                                             String ifMatch,
+                                             @RequestHeader(name = HttpHeaders.ACCEPT, required = false)
+                                             String accept,
                                              Principal principal) {
         CashCard cashCard = findCashCard(requestedId, principal);
         if (cashCard != null) {
-            CashCard updatedCashCard = new CashCard(cashCard.id(), cashCardUpdate.amount(), principal.getName());
-            cashCardRepository.save(updatedCashCard);
+            if (ifMatch != null && !CashCardETags.matches(ifMatch, cashCard)) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            CashCard updatedCashCard = new CashCard(cashCard.id(), cashCardUpdate.amount(), principal.getName(),
+                    cashCard.version());
+            try {
+                CashCard savedCashCard = cashCardCache.save(updatedCashCard);
+                cashCardLedger.record(CashCardTransaction.Type.UPDATE, savedCashCard.id(), savedCashCard.owner(),
+                        savedCashCard.amount());
+                return ResponseEntity.noContent().eTag(CashCardETags.of(savedCashCard, accept)).build();
+            } catch (OptimisticLockingFailureException ex) {
+                return ResponseEntity.status(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT)
+                        .build();
+            }
+        }
+        return ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/{requestedId}/adjust")
+    private ResponseEntity<Void> adjustCashCard(@PathVariable Long requestedId,
+                                                @RequestBody BalanceAdjustment adjustment,
+                                                Principal principal) {
+        if (adjustment.amount() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        int updated = cashCardRepository.adjustAmount(requestedId, principal.getName(), adjustment.amount());
+        if (updated == 1) {
+            cashCardCache.evict(requestedId, principal.getName());
+            cashCardLedger.record(CashCardTransaction.Type.ADJUST, requestedId, principal.getName(),
+                    adjustment.amount());
             return ResponseEntity.noContent().build();
         }
+        if (cashCardCache.existsByIdAndOwner(requestedId, principal.getName())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
         return ResponseEntity.notFound().build();
     }
 
     @DeleteMapping("/{id}")
     private ResponseEntity<Void> deleteCashCard(@PathVariable Long id,
+                                                @RequestHeader(name = HttpHeaders.IF_MATCH, required = false)
+                                                String ifMatch,
                                                 Principal principal) {
-        if (cashCardRepository.existsByIdAndOwner(id, principal.getName())) {
-            cashCardRepository.deleteById(id);
-
+        CashCard cashCard = findCashCard(id, principal);
+        if (cashCard != null) {
+            if (ifMatch == null) {
+                cashCardCache.deleteByIdAndOwner(id, principal.getName());
+                return ResponseEntity.noContent().build();
+            }
+            if (!CashCardETags.matches(ifMatch, cashCard)) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            try {
+                cashCardCache.delete(cashCard);
+            } catch (OptimisticLockingFailureException ex) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
             return ResponseEntity.noContent().build();
         }
 
         return ResponseEntity.notFound().build();
     }
+
+    @PostMapping("/batch")
+    private ResponseEntity<List<BatchItemResult>> createCashCards(@RequestBody List<CashCard> newCashCardRequests,
+                                                                  Principal principal) {
+        if (newCashCardRequests.size() > maxBatchSize) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok(cashCardBatchService.create(newCashCardRequests, principal.getName()));
+    }
+
+    @PatchMapping("/batch")
+    private ResponseEntity<List<BatchItemResult>> putCashCards(@RequestBody List<CashCard> cashCardUpdates,
+                                                               Principal principal) {
+        if (cashCardUpdates.size() > maxBatchSize) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok(cashCardBatchService.update(cashCardUpdates, principal.getName()));
+    }
+
+    @DeleteMapping("/batch")
+    private ResponseEntity<List<BatchItemResult>> deleteCashCards(@RequestBody List<Long> ids,
+                                                                  Principal principal) {
+        if (ids.size() > maxBatchSize) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok(cashCardBatchService.delete(ids, principal.getName()));
+    }
 }
@@ -0,0 +1,90 @@
+package pl.joannaszczesna.cashcard;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Strong entity tags of card representations, computed from the row versions without serializing the body.
+ * <p>
+ * A card is tagged with its version. A list is tagged with a digest of the ids and versions it contains,
+ * so the tag changes when a card of the page is updated, created or deleted. Each tag ends with the wire
+ * format negotiated from {@code Accept}, as JSON, CBOR and Smile bodies of one version are different bytes.
+ */
+final class CashCardETags {
+    private static final int LIST_TAG_BYTES = 16;
+    private static final List<MediaType> FORMATS = List.of(
+            MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, new MediaType("application", "x-jackson-smile"));
+    private static final List<String> FORMAT_NAMES = List.of("json", "cbor", "smile");
+
+    private CashCardETags() {
+    }
+
+    static String of(CashCard cashCard, String accept) {
+        return "\"" + cashCard.version() + "-" + format(accept) + "\"";
+    }
+
+    static String of(List<CashCard> cashCards, String accept) {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+        for (CashCard cashCard : cashCards) {
+            buffer.clear();
+            buffer.putLong(cashCard.id()).putLong(cashCard.version()).flip();
+            digest.update(buffer);
+        }
+        return "\"" + HexFormat.of().formatHex(digest.digest(), 0, LIST_TAG_BYTES) + "-" + format(accept) + "\"";
+    }
+
+    /**
+     * Strong comparison of an {@code If-Match} header against the card's version, whichever format the tag
+     * was read in: weak tags never match.
+     */
+    static boolean matches(String ifMatch, CashCard cashCard) {
+        String version = "\"" + cashCard.version() + "-";
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.startsWith(version) && tag.endsWith("\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The format the message converters pick for {@code accept}, JSON when it names none of them.
+     */
+    private static String format(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return FORMAT_NAMES.get(0);
+        }
+        List<MediaType> acceptable;
+        try {
+            acceptable = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException ex) {
+            return FORMAT_NAMES.get(0);
+        }
+        MimeTypeUtils.sortBySpecificity(acceptable);
+        for (MediaType mediaType : acceptable) {
+            for (int i = 0; i < FORMATS.size(); i++) {
+                if (mediaType.getQualityValue() > 0 && mediaType.isCompatibleWith(FORMATS.get(i))) {
+                    return FORMAT_NAMES.get(i);
+                }
+            }
+        }
+        return FORMAT_NAMES.get(0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
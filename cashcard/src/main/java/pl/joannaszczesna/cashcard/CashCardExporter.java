@@ -0,0 +1,70 @@
+package pl.joannaszczesna.cashcard;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Streams all cards of an owner from a forward-only JDBC cursor straight into an output stream,
+ * so memory use does not depend on the number of cards. The (owner, amount, id) index delivers the rows
+ * already sorted, so the database does not need to buffer them for an ORDER BY either.
+ * <p>
+ * Writes block while the client is slow to read, and a disconnected client fails the next write,
+ * which closes the cursor and ends the query.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class CashCardExporter {
+    private static final String SELECT_BY_OWNER = "SELECT id, amount, owner FROM cash_card WHERE owner = ? ORDER BY amount, id";
+
+    enum Format {
+        NDJSON, JSON
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    CashCardExporter(DataSource dataSource, ObjectMapper objectMapper,
+                     @Value("${cashcard.export.fetch-size}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.objectMapper = objectMapper;
+    }
+
+    // read-only transaction: drivers such as PostgreSQL only honour the fetch size outside auto-commit
+    @Transactional(readOnly = true)
+    public void export(@ShardKey String owner, Format format, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            if (format == Format.JSON) {
+                generator.writeStartArray();
+            }
+            jdbcTemplate.query(SELECT_BY_OWNER, resultSet -> {
+                CashCard cashCard = new CashCard(resultSet.getLong(1), resultSet.getBigDecimal(2), resultSet.getString(3));
+                try {
+                    generator.writeObject(cashCard);
+                    if (format == Format.NDJSON) {
+                        generator.writeRaw('\n');
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }, owner);
+            if (format == Format.JSON) {
+                generator.writeEndArray();
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+}
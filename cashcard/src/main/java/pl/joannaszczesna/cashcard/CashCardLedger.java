@@ -0,0 +1,214 @@
+package pl.joannaszczesna.cashcard;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends balance changes to the {@code cash_card_transaction} ledger off the request path.
+ * <p>
+ * Requests put entries into a bounded in-memory buffer. A single writer thread takes whatever has
+ * accumulated, up to the maximum batch size, and inserts it with one JDBC batch in one transaction, so all
+ * entries of a batch share a commit. A full buffer blocks the recording request until the writer catches up.
+ * <p>
+ * With {@code async} durability a request returns as soon as its entries are buffered; entries still in the
+ * buffer when the process dies are lost. With {@code sync} it waits until the batch holding its entries has
+ * been written. Either way an entry is recorded after the card change itself has committed, so a failed write
+ * does not fail the request: the change stands, and the lost entries are logged and counted as {@code failed}.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class CashCardLedger implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(CashCardLedger.class);
+    private static final String INSERT = """
+            INSERT INTO cash_card_transaction (cash_card_id, owner, type, amount, created_at)
+            VALUES (?, ?, ?, ?, ?)""";
+    private static final long POLL_MILLIS = 100;
+
+    enum Durability {
+        SYNC, ASYNC
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Durability durability;
+    private final int maxBatchSize;
+    private final BlockingQueue<Pending> buffer;
+    private final Counter written;
+    private final Counter failed;
+    private volatile boolean running;
+    private Thread writer;
+
+    CashCardLedger(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                   @Value("${cashcard.ledger.durability}") Durability durability,
+                   @Value("${cashcard.ledger.buffer-size}") int bufferSize,
+                   @Value("${cashcard.ledger.max-batch-size}") int maxBatchSize,
+                   MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.durability = durability;
+        this.maxBatchSize = maxBatchSize;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.written = entriesCounter(meterRegistry, "written");
+        this.failed = entriesCounter(meterRegistry, "failed");
+        Gauge.builder("cashcard.ledger.buffered", buffer, BlockingQueue::size)
+                .description("Ledger entries waiting for the writer")
+                .register(meterRegistry);
+    }
+
+    private static Counter entriesCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("cashcard.ledger.entries")
+                .description("Ledger entries handled by the writer")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    void record(CashCardTransaction.Type type, Long cashCardId, String owner, BigDecimal amount) {
+        record(List.of(CashCardTransaction.of(type, cashCardId, owner, amount)));
+    }
+
+    void record(List<CashCardTransaction> transactions) {
+        List<Pending> pending = new ArrayList<>(transactions.size());
+        for (CashCardTransaction transaction : transactions) {
+            pending.add(new Pending(transaction, durability == Durability.SYNC ? new CompletableFuture<>() : null));
+        }
+        if (!running) {
+            // before start or after stop there is no writer to hand the entries to
+            write(pending);
+        } else {
+            try {
+                for (Pending entry : pending) {
+                    buffer.put(entry);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while recording ledger entries", ex);
+            }
+            if (!running) {
+                // stopped while putting: the writer may have exited before it saw these entries
+                writeBuffered();
+            }
+        }
+        if (durability == Durability.SYNC) {
+            // a failed batch completes exceptionally after it was logged; the request still succeeds
+            CompletableFuture.allOf(pending.stream().map(Pending::written).toArray(CompletableFuture[]::new))
+                    .exceptionally(ex -> null)
+                    .join();
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer = new Thread(this::drain, "cashcard-ledger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Lets the writer flush everything that was buffered before it exits, then writes whatever was put
+     * after its last look at the buffer.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        writeBuffered();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // stops after the web server, so requests that are still finishing can record their changes
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 4096;
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                Pending first = buffer.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, maxBatchSize - 1);
+                write(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBuffered() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (buffer.drainTo(batch, maxBatchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT, batch, batch.size(), (ps, pending) -> {
+                        CashCardTransaction transaction = pending.transaction();
+                        ps.setLong(1, transaction.cashCardId());
+                        ps.setString(2, transaction.owner());
+                        ps.setString(3, transaction.type().name());
+                        ps.setBigDecimal(4, transaction.amount());
+                        ps.setTimestamp(5, Timestamp.from(transaction.createdAt()));
+                    }));
+        } catch (RuntimeException ex) {
+            failed.increment(batch.size());
+            log.error("Could not write {} ledger entries", batch.size(), ex);
+            for (Pending pending : batch) {
+                if (pending.written() != null) {
+                    pending.written().completeExceptionally(ex);
+                }
+            }
+            return;
+        }
+        written.increment(batch.size());
+        for (Pending pending : batch) {
+            if (pending.written() != null) {
+                pending.written().complete(null);
+            }
+        }
+    }
+
+    private record Pending(CashCardTransaction transaction, CompletableFuture<Void> written) {
+    }
+}
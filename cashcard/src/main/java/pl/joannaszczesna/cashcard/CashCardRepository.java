@@ -1,13 +1,56 @@
 package pl.joannaszczesna.cashcard;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jdbc.repository.query.Modifying;
+import org.springframework.data.jdbc.repository.query.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
 
 interface CashCardRepository extends CrudRepository<CashCard, Long>,
         PagingAndSortingRepository<CashCard, Long> {
-    CashCard findByIdAndOwner(Long id, String owner);
-    Page<CashCard> findByOwner(String owner, PageRequest pageRequest);
-    boolean existsByIdAndOwner(Long id, String owner);
+    CashCard findByIdAndOwner(Long id, @ShardKey String owner);
+    Slice<CashCard> findByOwner(@ShardKey String owner, PageRequest pageRequest);
+    boolean existsByIdAndOwner(Long id, @ShardKey String owner);
+
+    @Query("SELECT * FROM cash_card WHERE owner = :owner ORDER BY amount, id LIMIT :limit")
+    List<CashCard> scrollByOwner(@ShardKey String owner, int limit);
+
+    @Query("""
+            SELECT * FROM cash_card
+            WHERE owner = :owner AND amount >= :amount AND (amount > :amount OR id > :id)
+            ORDER BY amount, id
+            LIMIT :limit""")
+    List<CashCard> scrollByOwnerAfter(@ShardKey String owner, BigDecimal amount, Long id, int limit);
+
+    @Query(value = """
+            SELECT COUNT(*) AS card_count, COALESCE(SUM(amount), 0) AS total_amount,
+                   MIN(amount) AS min_amount, MAX(amount) AS max_amount
+            FROM cash_card
+            WHERE owner = :owner""", rowMapperClass = CashCardSummary.Mapper.class)
+    CashCardSummary summarizeByOwner(@ShardKey String owner);
+
+    /**
+     * Adds {@code delta} to the amount in a single statement. Debits which would make the balance negative
+     * are not applied.
+     *
+     * @return number of updated rows: 0 when the card does not exist, belongs to someone else
+     * or has insufficient funds
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE cash_card SET amount = amount + :delta, version = version + 1
+            WHERE id = :id AND owner = :owner
+            AND (amount + :delta >= amount OR amount + :delta >= 0)""")
+    int adjustAmount(Long id, @ShardKey String owner, BigDecimal delta);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM cash_card WHERE id = :id AND owner = :owner")
+    int deleteByIdAndOwner(Long id, @ShardKey String owner);
 }
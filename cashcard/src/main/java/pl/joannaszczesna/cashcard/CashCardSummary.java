@@ -0,0 +1,31 @@
+package pl.joannaszczesna.cashcard;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Aggregate over all cards of one owner. {@code minAmount} and {@code maxAmount} are {@code null}
+ * when the owner has no cards.
+ */
+record CashCardSummary(long cardCount, BigDecimal totalAmount, BigDecimal minAmount, BigDecimal maxAmount) {
+
+    CashCardSummary {
+        totalAmount = CashCard.scaled(totalAmount);
+        minAmount = CashCard.scaled(minAmount);
+        maxAmount = CashCard.scaled(maxAmount);
+    }
+
+    static class Mapper implements RowMapper<CashCardSummary> {
+        @Override
+        public CashCardSummary mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new CashCardSummary(
+                    rs.getLong("card_count"),
+                    rs.getBigDecimal("total_amount"),
+                    rs.getBigDecimal("min_amount"),
+                    rs.getBigDecimal("max_amount"));
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package pl.joannaszczesna.cashcard;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * One balance change of a card in the append-only ledger.
+ *
+ * @param amount the new balance for {@link Type#CREATE} and {@link Type#UPDATE}, the signed change
+ *               for {@link Type#ADJUST}
+ */
+@Table("cash_card_transaction")
+record CashCardTransaction(@Id Long id, Long cashCardId, @JsonIgnore String owner, Type type, BigDecimal amount,
+                           Instant createdAt) {
+
+    enum Type {
+        CREATE, UPDATE, ADJUST
+    }
+
+    static CashCardTransaction of(Type type, Long cashCardId, String owner, BigDecimal amount) {
+        return new CashCardTransaction(null, cashCardId, owner, type, amount, Instant.now());
+    }
+}
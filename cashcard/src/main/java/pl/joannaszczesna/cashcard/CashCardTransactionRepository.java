@@ -0,0 +1,26 @@
+package pl.joannaszczesna.cashcard;
+
+import org.springframework.data.jdbc.repository.query.Query;
+import org.springframework.data.repository.Repository;
+
+import java.util.List;
+
+/**
+ * Reads the ledger newest first; entries are written by {@link CashCardLedger}.
+ */
+interface CashCardTransactionRepository extends Repository<CashCardTransaction, Long> {
+
+    @Query("""
+            SELECT * FROM cash_card_transaction
+            WHERE cash_card_id = :cashCardId AND owner = :owner
+            ORDER BY id DESC
+            LIMIT :limit""")
+    List<CashCardTransaction> scrollByCashCard(Long cashCardId, String owner, int limit);
+
+    @Query("""
+            SELECT * FROM cash_card_transaction
+            WHERE cash_card_id = :cashCardId AND owner = :owner AND id < :id
+            ORDER BY id DESC
+            LIMIT :limit""")
+    List<CashCardTransaction> scrollByCashCardBefore(Long cashCardId, String owner, Long id, int limit);
+}
@@ -0,0 +1,42 @@
+package pl.joannaszczesna.cashcard;
+
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+
+/**
+ * Bounded {@link UserCache} of loaded users; changes to a user show up after the TTL at the latest,
+ * or right away when they are made through {@link CachingUserDetailsManager}.
+ * <p>
+ * Users are copied in and out of the cache: a successful authentication erases the password of the
+ * {@link UserDetails} it hands out, which must never be the cached instance.
+ */
+class ExpiringUserCache implements UserCache {
+    private final ExpiringCache<String, UserDetails> users;
+
+    ExpiringUserCache(int maxSize, Duration ttl) {
+        this.users = new ExpiringCache<>(maxSize, ttl);
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        UserDetails user = users.get(username);
+        return user == null ? null : User.withUserDetails(user).build();
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        users.put(user.getUsername(), User.withUserDetails(user).build());
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        users.remove(username);
+    }
+
+    ExpiringCache<?, ?> cache() {
+        return users;
+    }
+}
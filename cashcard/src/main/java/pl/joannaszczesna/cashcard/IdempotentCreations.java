@@ -0,0 +1,100 @@
+package pl.joannaszczesna.cashcard;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs card creations at most once per owner and {@code Idempotency-Key}.
+ * <p>
+ * The first request with a key registers a future before inserting; retries and concurrent duplicates
+ * wait on that future instead of inserting again. Pending creations are never evicted. Created cards are
+ * kept for the configured TTL, up to a bounded number of the most recently used keys. A failed insert
+ * forgets its key, so it can be retried; a failure after the insert keeps it, since the card exists.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class IdempotentCreations implements MeterBinder {
+    private final Map<Key, CompletableFuture<CashCard>> pending = new ConcurrentHashMap<>();
+    private final ExpiringCache<Key, CashCard> created;
+    private final Duration waitTimeout;
+
+    IdempotentCreations(@Value("${cashcard.idempotency.max-size}") int maxSize,
+                        @Value("${cashcard.idempotency.ttl}") Duration ttl,
+                        @Value("${cashcard.idempotency.wait-timeout}") Duration waitTimeout) {
+        this.created = new ExpiringCache<>(maxSize, ttl);
+        this.waitTimeout = waitTimeout;
+    }
+
+    /**
+     * @param insert    runs only for the first request with this key
+     * @param onCreated runs after {@code insert} succeeded, for the first request only
+     * @return the card saved by the first request with this key, or empty when that request is still running
+     * after the wait timeout
+     */
+    Optional<CashCard> create(String owner, String idempotencyKey, Supplier<CashCard> insert,
+                              Consumer<CashCard> onCreated) {
+        Key key = new Key(owner, idempotencyKey);
+        CompletableFuture<CashCard> creation = new CompletableFuture<>();
+        CompletableFuture<CashCard> inFlight = pending.putIfAbsent(key, creation);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        // the first request moves its card to the cache before it leaves the pending map
+        CashCard saved = created.get(key);
+        if (saved != null) {
+            pending.remove(key, creation);
+            creation.complete(saved);
+            return Optional.of(saved);
+        }
+        try {
+            saved = insert.get();
+        } catch (RuntimeException ex) {
+            pending.remove(key, creation);
+            creation.completeExceptionally(ex);
+            throw ex;
+        }
+        created.put(key, saved);
+        pending.remove(key, creation);
+        creation.complete(saved);
+        onCreated.accept(saved);
+        return Optional.of(saved);
+    }
+
+    private Optional<CashCard> await(CompletableFuture<CashCard> inFlight) {
+        try {
+            // a copy, so the timeout of one waiter does not fail the others
+            return Optional.of(inFlight.copy().orTimeout(waitTimeout.toMillis(), TimeUnit.MILLISECONDS).join());
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof TimeoutException) {
+                return Optional.empty();
+            }
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExpiringCacheMetrics(created, "idempotency", Tags.empty()).bindTo(registry);
+    }
+
+    private record Key(String owner, String idempotencyKey) {
+    }
+}
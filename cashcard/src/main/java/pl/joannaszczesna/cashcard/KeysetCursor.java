@@ -0,0 +1,34 @@
+package pl.joannaszczesna.cashcard;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last card of a window in the {@code (amount, id)} ordering, encoded as an opaque token.
+ */
+record KeysetCursor(BigDecimal amount, Long id) {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    static KeysetCursor after(CashCard cashCard) {
+        return new KeysetCursor(cashCard.amount(), cashCard.id());
+    }
+
+    /**
+     * @throws IllegalArgumentException when the token was not produced by {@link #encode()}
+     */
+    static KeysetCursor decode(String token) {
+        String decoded = new String(DECODER.decode(token), StandardCharsets.UTF_8);
+        int separator = decoded.indexOf(':');
+        if (separator < 1) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        return new KeysetCursor(new BigDecimal(decoded.substring(0, separator)),
+                Long.valueOf(decoded.substring(separator + 1)));
+    }
+
+    String encode() {
+        return ENCODER.encodeToString((amount.toPlainString() + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,72 @@
+package pl.joannaszczesna.cashcard;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket per principal, implemented as a generic cell rate algorithm (GCRA).
+ * <p>
+ * Each principal keeps only its theoretical arrival time: the instant its bucket would be full again.
+ * A request is admitted when moving that instant one emission interval ahead keeps it within the burst
+ * tolerance, which is a single compare-and-set. Buckets that are full again are equivalent to absent ones
+ * and are dropped once more than {@code maxTracked} principals are remembered.
+ */
+class PrincipalRateLimiter {
+    private static final long PRUNE_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxTracked;
+    private final ConcurrentMap<String, AtomicLong> arrivals = new ConcurrentHashMap<>();
+    private final AtomicLong nextPruneAt = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param ratePerSecond sustained number of requests per second and principal
+     * @param burst         number of requests a principal may send at once after being idle
+     */
+    PrincipalRateLimiter(double ratePerSecond, int burst, int maxTracked) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("rate and burst must be positive");
+        }
+        this.emissionIntervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * burst;
+        this.maxTracked = maxTracked;
+    }
+
+    /**
+     * @return {@code 0} when the request is admitted, otherwise the nanoseconds until it would be
+     */
+    long tryAcquire(String principal) {
+        long now = System.nanoTime();
+        AtomicLong arrival = arrivals.get(principal);
+        if (arrival == null) {
+            pruneIfNeeded(now);
+            arrival = new AtomicLong(now);
+            AtomicLong existing = arrivals.putIfAbsent(principal, arrival);
+            if (existing != null) {
+                arrival = existing;
+            }
+        }
+        while (true) {
+            long theoreticalArrival = arrival.get();
+            long next = Math.max(theoreticalArrival, now) + emissionIntervalNanos;
+            long wait = next - burstToleranceNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrival.compareAndSet(theoreticalArrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private void pruneIfNeeded(long now) {
+        long pruneAt = nextPruneAt.get();
+        if (arrivals.size() < maxTracked || now - pruneAt < 0
+                || !nextPruneAt.compareAndSet(pruneAt, now + PRUNE_INTERVAL_NANOS)) {
+            return;
+        }
+        arrivals.values().removeIf(arrival -> arrival.get() - now <= 0);
+    }
+}
@@ -0,0 +1,60 @@
+package pl.joannaszczesna.cashcard;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Loads users of the reactive stack from the same {@code users} and {@code authorities} tables as the
+ * servlet stack, with one indexed join.
+ * <p>
+ * Blocks until the row arrives: it is only called through the {@code ReactiveAuthenticationManagerAdapter},
+ * which runs on the bounded elastic scheduler.
+ */
+class R2dbcUserDetailsService implements UserDetailsService {
+    private static final String USER_BY_USERNAME = """
+            SELECT u.username, u.password, u.enabled, a.authority
+            FROM users u LEFT JOIN authorities a ON a.username = u.username
+            WHERE u.username = :username""";
+
+    private final DatabaseClient databaseClient;
+
+    R2dbcUserDetailsService(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) {
+        List<UserRow> rows = databaseClient.sql(USER_BY_USERNAME)
+                .bind("username", username)
+                .map(row -> new UserRow(row.get("username", String.class), row.get("password", String.class),
+                        Boolean.TRUE.equals(row.get("enabled", Boolean.class)), row.get("authority", String.class)))
+                .all()
+                .collectList()
+                .block();
+        List<SimpleGrantedAuthority> authorities = rows == null ? List.of() : rows.stream()
+                .map(UserRow::authority)
+                .filter(Objects::nonNull)
+                .map(SimpleGrantedAuthority::new)
+                .toList();
+        if (authorities.isEmpty()) {
+            // same as JdbcDaoImpl: a user without authorities cannot log in
+            throw new UsernameNotFoundException("User " + username + " not found");
+        }
+        UserRow user = rows.get(0);
+        return User.withUsername(user.username())
+                .password(user.password())
+                .disabled(!user.enabled())
+                .authorities(authorities)
+                .build();
+    }
+
+    private record UserRow(String username, String password, boolean enabled, String authority) {
+    }
+}
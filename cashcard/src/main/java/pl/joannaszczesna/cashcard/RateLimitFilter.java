@@ -0,0 +1,89 @@
+package pl.joannaszczesna.cashcard;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies the {@link RequestLimiter} to authorized {@code /cashcards} requests: {@code 429} when the owner
+ * exceeds their rate, {@code 503} when the server sheds load. Both carry a {@code Retry-After} header.
+ */
+class RateLimitFilter extends OncePerRequestFilter {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final RequestLimiter requestLimiter;
+    private final SecurityContextHolderStrategy securityContextHolderStrategy =
+            SecurityContextHolder.getContextHolderStrategy();
+
+    RateLimitFilter(RequestLimiter requestLimiter) {
+        this.requestLimiter = requestLimiter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication authentication = securityContextHolderStrategy.getContext().getAuthentication();
+        if (authentication == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        // shed load before taking a token, so a 503 does not use up the owner's rate
+        if (!requestLimiter.tryAcquire()) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1);
+            return;
+        }
+        boolean sampled = false;
+        long start = System.nanoTime();
+        try {
+            long wait = requestLimiter.rateLimit(authentication.getName(), isWrite(request));
+            if (wait > 0) {
+                reject(response, HttpStatus.TOO_MANY_REQUESTS, (wait + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+                return;
+            }
+            sampled = isLatencySample(request);
+            filterChain.doFilter(request, response);
+        } finally {
+            if (sampled) {
+                requestLimiter.release(System.nanoTime() - start);
+            } else {
+                requestLimiter.release();
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !requestLimiter.isEnabled()
+                || !request.getRequestURI().startsWith(request.getContextPath() + "/cashcards");
+    }
+
+    /**
+     * Exports stream every card and batches carry up to thousands of items, so they are slow without any
+     * queueing; only the other requests adapt the concurrency limit.
+     */
+    private static boolean isLatencySample(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !(path.equals("/cashcards/export") || path.equals("/cashcards/batch"));
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !(HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method)
+                || HttpMethod.OPTIONS.matches(method));
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setStatus(status.value());
+    }
+}
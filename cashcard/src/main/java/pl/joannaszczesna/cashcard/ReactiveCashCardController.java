@@ -0,0 +1,195 @@
+package pl.joannaszczesna.cashcard;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * The {@code /cashcards} contract of {@link CashCardController} on WebFlux and R2DBC, active when the
+ * application runs as a reactive web application ({@code reactive} profile).
+ * <p>
+ * Batch operations are served by the servlet stack only.
+ */
+@RestController
+@RequestMapping("/cashcards")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCashCardController {
+    private static final int MAX_SCROLL_SIZE = 1000;
+
+    private final ReactiveCashCardRepository cashCardRepository;
+
+    private ReactiveCashCardController(ReactiveCashCardRepository cashCardRepository) {
+        this.cashCardRepository = cashCardRepository;
+    }
+
+    @GetMapping("/{requestedId}")
+    private Mono<ResponseEntity<CashCard>> findById(@PathVariable Long requestedId,
+                                                    @RequestHeader(name = HttpHeaders.ACCEPT, required = false)
+                                                    String accept,
+                                                    Principal principal) {
+        return cashCardRepository.findByIdAndOwner(requestedId, principal.getName())
+                .map(cashCard -> ResponseEntity.ok()
+                        .eTag(CashCardETags.of(cashCard, accept))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(cashCard))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    private Mono<ResponseEntity<Void>> createCashCard(@RequestBody CashCard newCashCardRequest,
+                                                      UriComponentsBuilder ucb, Principal principal) {
+        CashCard cashCardWithOwner = new CashCard(null, newCashCardRequest.amount(), principal.getName());
+        return cashCardRepository.save(cashCardWithOwner)
+                .map(savedCashCard -> {
+                    URI locationOfNewCashCard = ucb
+                            .path("cashcards/{id}")
+                            .buildAndExpand(savedCashCard.id())
+                            .toUri();
+                    return ResponseEntity.created(locationOfNewCashCard).build();
+                });
+    }
+
+    @GetMapping
+    private Mono<ResponseEntity<List<CashCard>>> findAll(Pageable pageable,
+                                                         @RequestHeader(name = HttpHeaders.ACCEPT, required = false)
+                                                         String accept,
+                                                         Principal principal) {
+        return cashCardRepository.findByOwner(principal.getName(),
+                        PageRequest.of(
+                                pageable.getPageNumber(),
+                                pageable.getPageSize(),
+                                pageable.getSortOr(Sort.by(Sort.Direction.ASC, "amount"))
+                        ))
+                .collectList()
+                .map(cashCards -> ResponseEntity.ok()
+                        .eTag(CashCardETags.of(cashCards, accept))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(cashCards));
+    }
+
+    @GetMapping("/summary")
+    private Mono<ResponseEntity<CashCardSummary>> summary(Principal principal) {
+        return cashCardRepository.summarizeByOwner(principal.getName())
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/scroll")
+    private Mono<ResponseEntity<Scroll<CashCard>>> scroll(@RequestParam(required = false) String cursor,
+                                                          @RequestParam(defaultValue = "20") int size,
+                                                          Principal principal) {
+        int limit = Math.min(Math.max(size, 1), MAX_SCROLL_SIZE);
+        Flux<CashCard> cashCards;
+        if (cursor == null || cursor.isEmpty()) {
+            cashCards = cashCardRepository.scrollByOwner(principal.getName(), limit + 1);
+        } else {
+            KeysetCursor after;
+            try {
+                after = KeysetCursor.decode(cursor);
+            } catch (IllegalArgumentException ex) {
+                return Mono.just(ResponseEntity.badRequest().build());
+            }
+            cashCards = cashCardRepository.scrollByOwnerAfter(principal.getName(), after.amount(), after.id(), limit + 1);
+        }
+        return cashCards.collectList()
+                .map(fetched -> ResponseEntity.ok(
+                        Scroll.of(fetched, limit, cashCard -> KeysetCursor.after(cashCard).encode())));
+    }
+
+    /**
+     * Streams the cards as they arrive from the database; NDJSON is flushed line by line.
+     */
+    @GetMapping("/export")
+    private ResponseEntity<Flux<CashCard>> exportCashCards(@RequestParam(defaultValue = "ndjson") String format,
+                                                           Principal principal) {
+        MediaType contentType;
+        if (format.equalsIgnoreCase("ndjson")) {
+            contentType = MediaType.APPLICATION_NDJSON;
+        } else if (format.equalsIgnoreCase("json")) {
+            contentType = MediaType.APPLICATION_JSON;
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .body(cashCardRepository.exportByOwner(principal.getName()));
+    }
+
+    /**
+     * @see CashCardController#putCashCard
+     */
+    @PutMapping("/{requestedId}")
+    private Mono<ResponseEntity<Void>> putCashCard(@PathVariable Long requestedId,
+                                                   @RequestBody CashCard cashCardUpdate,
+                                                   @RequestHeader(name = HttpHeaders.IF_MATCH, required = false)
+                                                   String ifMatch,
+                                                   @RequestHeader(name = HttpHeaders.ACCEPT, required = false)
+                                                   String accept,
+                                                   Principal principal) {
+        return cashCardRepository.findByIdAndOwner(requestedId, principal.getName())
+                .flatMap(cashCard -> {
+                    if (ifMatch != null && !CashCardETags.matches(ifMatch, cashCard)) {
+                        return Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).<Void>build());
+                    }
+                    return cashCardRepository.save(new CashCard(cashCard.id(), cashCardUpdate.amount(),
+                                    principal.getName(), cashCard.version()))
+                            .map(updatedCashCard -> ResponseEntity.noContent()
+                                    .eTag(CashCardETags.of(updatedCashCard, accept)).<Void>build())
+                            .onErrorResume(OptimisticLockingFailureException.class, ex -> Mono.just(
+                                    ResponseEntity.status(ifMatch != null
+                                            ? HttpStatus.PRECONDITION_FAILED
+                                            : HttpStatus.CONFLICT).<Void>build()));
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{requestedId}/adjust")
+    private Mono<ResponseEntity<Void>> adjustCashCard(@PathVariable Long requestedId,
+                                                      @RequestBody BalanceAdjustment adjustment,
+                                                      Principal principal) {
+        if (adjustment.amount() == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return cashCardRepository.adjustAmount(requestedId, principal.getName(), adjustment.amount())
+                .flatMap(updated -> updated == 1
+                        ? Mono.just(ResponseEntity.noContent().<Void>build())
+                        : cashCardRepository.existsByIdAndOwner(requestedId, principal.getName())
+                        .map(exists -> exists
+                                ? ResponseEntity.status(HttpStatus.CONFLICT).<Void>build()
+                                : ResponseEntity.notFound().<Void>build()));
+    }
+
+    @DeleteMapping("/{id}")
+    private Mono<ResponseEntity<Void>> deleteCashCard(@PathVariable Long id,
+                                                      @RequestHeader(name = HttpHeaders.IF_MATCH, required = false)
+                                                      String ifMatch,
+                                                      Principal principal) {
+        if (ifMatch != null) {
+            return cashCardRepository.findByIdAndOwner(id, principal.getName())
+                    .flatMap(cashCard -> CashCardETags.matches(ifMatch, cashCard)
+                            ? cashCardRepository.deleteByIdAndOwnerAndVersion(id, principal.getName(), cashCard.version())
+                            : Mono.just(0))
+                    .map(deleted -> deleted == 1
+                            ? ResponseEntity.noContent().<Void>build()
+                            : ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).<Void>build())
+                    .defaultIfEmpty(ResponseEntity.notFound().build());
+        }
+        return cashCardRepository.deleteByIdAndOwner(id, principal.getName())
+                .map(deleted -> deleted == 1
+                        ? ResponseEntity.noContent().<Void>build()
+                        : ResponseEntity.notFound().<Void>build());
+    }
+}
@@ -0,0 +1,58 @@
+package pl.joannaszczesna.cashcard;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+/**
+ * R2DBC counterpart of {@link CashCardRepository} used by the {@code reactive} profile.
+ * The queries are the same, so both stacks page, scroll and adjust balances identically.
+ */
+interface ReactiveCashCardRepository extends R2dbcRepository<CashCard, Long> {
+    Mono<CashCard> findByIdAndOwner(Long id, String owner);
+    Flux<CashCard> findByOwner(String owner, Pageable pageable);
+    Mono<Boolean> existsByIdAndOwner(Long id, String owner);
+
+    @Query("SELECT * FROM cash_card WHERE owner = :owner ORDER BY amount, id LIMIT :limit")
+    Flux<CashCard> scrollByOwner(String owner, int limit);
+
+    @Query("""
+            SELECT * FROM cash_card
+            WHERE owner = :owner AND amount >= :amount AND (amount > :amount OR id > :id)
+            ORDER BY amount, id
+            LIMIT :limit""")
+    Flux<CashCard> scrollByOwnerAfter(String owner, BigDecimal amount, Long id, int limit);
+
+    @Query("SELECT * FROM cash_card WHERE owner = :owner ORDER BY amount, id")
+    Flux<CashCard> exportByOwner(String owner);
+
+    @Query("""
+            SELECT COUNT(*) AS card_count, COALESCE(SUM(amount), 0) AS total_amount,
+                   MIN(amount) AS min_amount, MAX(amount) AS max_amount
+            FROM cash_card
+            WHERE owner = :owner""")
+    Mono<CashCardSummary> summarizeByOwner(String owner);
+
+    /**
+     * @see CashCardRepository#adjustAmount(Long, String, BigDecimal)
+     */
+    @Modifying
+    @Query("""
+            UPDATE cash_card SET amount = amount + :delta, version = version + 1
+            WHERE id = :id AND owner = :owner
+            AND (amount + :delta >= amount OR amount + :delta >= 0)""")
+    Mono<Integer> adjustAmount(Long id, String owner, BigDecimal delta);
+
+    @Modifying
+    @Query("DELETE FROM cash_card WHERE id = :id AND owner = :owner")
+    Mono<Integer> deleteByIdAndOwner(Long id, String owner);
+
+    @Modifying
+    @Query("DELETE FROM cash_card WHERE id = :id AND owner = :owner AND version = :version")
+    Mono<Integer> deleteByIdAndOwnerAndVersion(Long id, String owner, Long version);
+}
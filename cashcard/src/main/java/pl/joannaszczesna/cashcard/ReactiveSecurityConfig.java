@@ -0,0 +1,62 @@
+package pl.joannaszczesna.cashcard;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.authentication.CachingUserDetailsService;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.ReactiveAuthenticationManagerAdapter;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+
+/**
+ * Same access rules as {@link SecurityConfig} for the reactive stack.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecurityConfig {
+
+    @Bean
+    SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, TokenService tokenService) {
+        return http
+                .authorizeExchange(exchange -> exchange
+                        .pathMatchers("/cashcards/**")
+                        .hasRole("CARD-OWNER")
+                        .pathMatchers("/auth/token")
+                        .authenticated()
+                        .pathMatchers("/actuator/health")
+                        .permitAll()
+                        .pathMatchers("/actuator/**")
+                        .hasRole("OPS"))
+                .httpBasic(Customizer.withDefaults())
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .addFilterBefore(new TokenAuthenticationWebFilter(tokenService), SecurityWebFiltersOrder.HTTP_BASIC)
+                .csrf(csrf -> csrf.disable())
+                .build();
+    }
+
+    /**
+     * Same tables and user cache as the servlet stack, read through R2DBC.
+     */
+    @Bean
+    UserDetailsService users(DatabaseClient databaseClient, ExpiringUserCache userCache) {
+        CachingUserDetailsService users = new CachingUserDetailsService(new R2dbcUserDetailsService(databaseClient));
+        users.setUserCache(userCache);
+        return users;
+    }
+
+    /**
+     * Reuses the credentials cache of the servlet stack. The adapter verifies passwords on the bounded
+     * elastic scheduler, so a BCrypt round never runs on an event loop thread.
+     */
+    @Bean
+    ReactiveAuthenticationManager reactiveAuthenticationManager(CachingAuthenticationProvider authenticationProvider) {
+        return new ReactiveAuthenticationManagerAdapter(new ProviderManager(authenticationProvider));
+    }
+}
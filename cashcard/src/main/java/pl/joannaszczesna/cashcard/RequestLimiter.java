@@ -0,0 +1,91 @@
+package pl.joannaszczesna.cashcard;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Admission control for {@code /cashcards}: a token bucket per owner, with separate rates for reads and
+ * writes, and a global {@link AdaptiveConcurrencyLimit} that sheds load once requests start queueing.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class RequestLimiter {
+    private final boolean enabled;
+    private final PrincipalRateLimiter reads;
+    private final PrincipalRateLimiter writes;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final Counter rateLimited;
+    private final Counter overloaded;
+
+    RequestLimiter(@Value("${cashcard.rate-limit.enabled}") boolean enabled,
+                   @Value("${cashcard.rate-limit.read.rate}") double readRate,
+                   @Value("${cashcard.rate-limit.read.burst}") int readBurst,
+                   @Value("${cashcard.rate-limit.write.rate}") double writeRate,
+                   @Value("${cashcard.rate-limit.write.burst}") int writeBurst,
+                   @Value("${cashcard.rate-limit.max-tracked-owners}") int maxTrackedOwners,
+                   @Value("${cashcard.load-shedding.initial-limit}") int initialLimit,
+                   @Value("${cashcard.load-shedding.min-limit}") int minLimit,
+                   @Value("${cashcard.load-shedding.max-limit}") int maxLimit,
+                   @Value("${cashcard.load-shedding.latency-threshold}") Duration latencyThreshold,
+                   MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.reads = new PrincipalRateLimiter(readRate, readBurst, maxTrackedOwners);
+        this.writes = new PrincipalRateLimiter(writeRate, writeBurst, maxTrackedOwners);
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit,
+                latencyThreshold.toNanos());
+        this.rateLimited = rejectedCounter(meterRegistry, "rate-limit");
+        this.overloaded = rejectedCounter(meterRegistry, "overload");
+        Gauge.builder("cashcard.concurrency.limit", concurrencyLimit, AdaptiveConcurrencyLimit::limit)
+                .description("Current adaptive limit of concurrently processed requests")
+                .register(meterRegistry);
+        Gauge.builder("cashcard.concurrency.in-flight", concurrencyLimit, AdaptiveConcurrencyLimit::inFlight)
+                .register(meterRegistry);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("cashcard.requests.rejected")
+                .description("Requests turned away before reaching the controller")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return {@code 0} when the owner may send the request now, otherwise the nanoseconds to wait
+     */
+    long rateLimit(String owner, boolean write) {
+        long wait = (write ? writes : reads).tryAcquire(owner);
+        if (wait > 0) {
+            rateLimited.increment();
+        }
+        return wait;
+    }
+
+    /**
+     * @return {@code false} when the server is overloaded; otherwise {@link #release(long)} must follow
+     */
+    boolean tryAcquire() {
+        if (concurrencyLimit.tryAcquire()) {
+            return true;
+        }
+        overloaded.increment();
+        return false;
+    }
+
+    void release() {
+        concurrencyLimit.release();
+    }
+
+    void release(long latencyNanos) {
+        concurrencyLimit.release(latencyNanos);
+    }
+}
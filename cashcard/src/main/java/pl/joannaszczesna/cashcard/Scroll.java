@@ -0,0 +1,23 @@
+package pl.joannaszczesna.cashcard;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One window of a keyset-paginated listing. {@code next} is the opaque cursor of the following window,
+ * {@code null} on the last one.
+ */
+record Scroll<T>(List<T> content, String next) {
+
+    /**
+     * @param fetched up to {@code limit + 1} rows; the extra row only tells that another window follows
+     * @param cursor  encodes the position of the last row of this window
+     */
+    static <T> Scroll<T> of(List<T> fetched, int limit, Function<T, String> cursor) {
+        if (fetched.size() <= limit) {
+            return new Scroll<>(fetched, null);
+        }
+        List<T> content = fetched.subList(0, limit);
+        return new Scroll<>(content, cursor.apply(content.get(limit - 1)));
+    }
+}
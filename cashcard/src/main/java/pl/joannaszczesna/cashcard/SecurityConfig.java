@@ -1,26 +1,46 @@
 package pl.joannaszczesna.cashcard;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
-import org.springframework.security.core.userdetails.User;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.provisioning.JdbcUserDetailsManager;
+import org.springframework.security.provisioning.UserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+
+import javax.sql.DataSource;
+import java.time.Duration;
 
 @Configuration
 public class SecurityConfig {
 
     @Bean
-    SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    SecurityFilterChain filterChain(HttpSecurity http, TokenService tokenService, RequestLimiter requestLimiter)
+            throws Exception {
         http
                 .authorizeHttpRequests(request -> request
                         .requestMatchers("/cashcards/**")
-                        .hasRole("CARD-OWNER"))
+                        .hasRole("CARD-OWNER")
+                        .requestMatchers("/auth/token")
+                        .authenticated()
+                        .requestMatchers("/actuator/health")
+                        .permitAll()
+                        .requestMatchers("/actuator/**")
+                        .hasRole("OPS"))
                 .httpBasic(Customizer.withDefaults())
+                .addFilterBefore(new TokenAuthenticationFilter(tokenService), BasicAuthenticationFilter.class)
+                .addFilterAfter(new RateLimitFilter(requestLimiter), AuthorizationFilter.class)
                 .csrf(csrf -> csrf.disable());
         return http.build();
     }
@@ -29,24 +49,44 @@ public class SecurityConfig {
     PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
     }
+
+    @Bean
+    CachingAuthenticationProvider authenticationProvider(
+            UserDetailsService userDetailsService,
+            PasswordEncoder passwordEncoder,
+            @Value("${cashcard.security.credentials-cache.max-size}") int maxSize,
+            @Value("${cashcard.security.credentials-cache.ttl}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        return new CachingAuthenticationProvider(userDetailsService, passwordEncoder, maxSize, ttl, meterRegistry);
+    }
+
+    @Bean
+    MeterBinder credentialsCacheMetrics(CachingAuthenticationProvider authenticationProvider) {
+        return new ExpiringCacheMetrics(authenticationProvider.cache(), "credentials", Tags.empty());
+    }
+
+    @Bean
+    ExpiringUserCache userCache(@Value("${cashcard.security.user-cache.max-size}") int maxSize,
+                                @Value("${cashcard.security.user-cache.ttl}") Duration ttl) {
+        return new ExpiringUserCache(maxSize, ttl);
+    }
+
+    @Bean
+    MeterBinder userCacheMetrics(ExpiringUserCache userCache) {
+        return new ExpiringCacheMetrics(userCache.cache(), "users", Tags.empty());
+    }
+
+    /**
+     * Users live in the {@code users} and {@code authorities} tables with BCrypt hashed passwords,
+     * looked up by primary key on demand; nothing is loaded or encoded at startup. Changes made through
+     * this manager evict the user from both caches.
+     */
     @Bean
-    UserDetailsService testOnlyUsers(PasswordEncoder passwordEncoder) {
-        User.UserBuilder users = User.builder();
-        UserDetails sarah = users
-                .username("sarah1")
-                .password(passwordEncoder.encode("abc123"))
-                .roles("CARD-OWNER")
-                .build();
-        UserDetails hankOwnsNoCards = users
-                .username("hank-owns-no-cards")
-                .password(passwordEncoder.encode("qrs456"))
-                .roles("NON-OWNER")
-                .build();
-        UserDetails john = users
-                .username("john2")
-                .password(passwordEncoder.encode("xyz789"))
-                .roles("CARD-OWNER")
-                .build();
-        return new InMemoryUserDetailsManager(sarah, hankOwnsNoCards, john);
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    UserDetailsManager users(DataSource dataSource, ExpiringUserCache userCache,
+                             ObjectProvider<CachingAuthenticationProvider> authenticationProvider) {
+        // the provider loads users from this manager, so it is looked up only when a user changes
+        return new CachingUserDetailsManager(new JdbcUserDetailsManager(dataSource), userCache,
+                username -> authenticationProvider.ifAvailable(provider -> provider.evict(username)));
     }
 }
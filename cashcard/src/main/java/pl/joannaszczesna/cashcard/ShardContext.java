@@ -0,0 +1,24 @@
+package pl.joannaszczesna.cashcard;
+
+/**
+ * The shard the current thread works on, set by {@link ShardRouting} around routed calls and read by
+ * {@link ShardRoutingDataSource} whenever a connection is taken. Unset means the default shard 0.
+ */
+final class ShardContext {
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    static Integer current() {
+        return CURRENT.get();
+    }
+
+    static void set(int shard) {
+        CURRENT.set(shard);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,16 @@
+package pl.joannaszczesna.cashcard;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the parameter {@link ShardRouting} takes the shard from: a card owner or a {@link CashCard}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+@interface ShardKey {
+}
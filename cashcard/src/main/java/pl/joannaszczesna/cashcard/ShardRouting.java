@@ -0,0 +1,77 @@
+package pl.joannaszczesna.cashcard;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+
+/**
+ * Binds the shard of the card owner to the thread for the duration of a call, so that every connection the
+ * call takes, including the one of a transaction it starts, comes from that shard.
+ * <p>
+ * The shard is the hash of the owner in the argument of the {@link ShardKey} parameter, given as a name or as
+ * the owner of a {@link CashCard}. Methods inherited from {@link CrudRepository} cannot be annotated; they are
+ * routed by their entity argument, so lookups by id alone fail. Any other call without a key fails instead of
+ * silently using the default shard. Calls nested in an already routed call keep the current shard.
+ */
+class ShardRouting implements MethodInterceptor {
+    private final int shardCount;
+
+    ShardRouting(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    int shardOf(String owner) {
+        return Math.floorMod(owner.hashCode(), shardCount);
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (ShardContext.current() != null || invocation.getMethod().getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        ShardContext.set(shardOf(invocation.getMethod(), invocation.getArguments()));
+        try {
+            return invocation.proceed();
+        } finally {
+            ShardContext.clear();
+        }
+    }
+
+    private int shardOf(Method method, Object[] arguments) {
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i].isAnnotationPresent(ShardKey.class)) {
+                Integer shard = shardOfKey(arguments[i]);
+                if (shard == null) {
+                    throw new IllegalArgumentException("Shard key of " + method
+                            + " must be an owner or a card with an owner, but was " + arguments[i]);
+                }
+                return shard;
+            }
+        }
+        if (method.getDeclaringClass() == CrudRepository.class
+                || method.getDeclaringClass() == PagingAndSortingRepository.class) {
+            for (Object argument : arguments) {
+                Integer shard = shardOfKey(argument);
+                if (shard != null) {
+                    return shard;
+                }
+            }
+        }
+        throw new IllegalStateException("Cannot route " + method + " to a shard: no @ShardKey parameter");
+    }
+
+    private Integer shardOfKey(Object key) {
+        if (key instanceof String owner) {
+            return shardOf(owner);
+        }
+        if (key instanceof CashCard cashCard && cashCard.owner() != null) {
+            return shardOf(cashCard.owner());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,127 @@
+package pl.joannaszczesna.cashcard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partitions cards by owner across {@code cashcard.shards.count} databases when the count is above 1.
+ * <p>
+ * {@link ShardRouting} is added in front of the transaction handling of {@link CashCardRepository},
+ * {@link CashCardBatchService} and {@link CashCardExporter}, so callers such as {@link CashCardController}
+ * are unaware of it. Every shard gets the schema; the SQL init scripts, users and the ledger stay in shard 0.
+ * Cards the init scripts insert into shard 0 are moved to the shard of their owner at startup. Card ids are
+ * generated as {@code shardCount * n + shard}, so they stay unique across shards.
+ * <p>
+ * Under Spring AOT the condition on {@code cashcard.shards.count} is evaluated when the jar is built, not at
+ * startup: an AOT jar built with a count of 1 ignores a higher count at runtime, and vice versa.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnExpression("${cashcard.shards.count} > 1")
+class ShardingConfig {
+    private static final String SHARD_PLACEHOLDER = "{shard}";
+
+    @Bean
+    @Primary
+    ShardRoutingDataSource dataSource(DataSourceProperties properties, Environment environment,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${cashcard.shards.count}") int shardCount,
+                                      @Value("${cashcard.shards.url}") String url) {
+        List<HikariDataSource> shards = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url.replace(SHARD_PLACEHOLDER, Integer.toString(shard)))
+                    .build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+            dataSource.setPoolName("shard-" + shard);
+            dataSource.setMetricRegistry(meterRegistry);
+            if (shard > 0) {
+                // shard 0 is initialized by spring.sql.init through the routing data source
+                new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+            }
+            shards.add(dataSource);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    static BeanPostProcessor shardRoutingPostProcessor(@Value("${cashcard.shards.count}") int shardCount) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(new ShardRouting(shardCount));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof CashCardRepository || bean instanceof CashCardBatchService
+                        || bean instanceof CashCardExporter)) {
+                    return bean;
+                }
+                // the shard must be bound before a transaction interceptor takes a connection
+                if (bean instanceof Advised advised && !advised.isFrozen()) {
+                    advised.addAdvisor(0, advisor);
+                    return bean;
+                }
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.setProxyTargetClass(!(bean instanceof CashCardRepository));
+                proxyFactory.addAdvisor(advisor);
+                return proxyFactory.getProxy();
+            }
+        };
+    }
+
+    /**
+     * Runs after the SQL init scripts have filled shard 0. Their cards are moved to the shard of their owner,
+     * each inserted there before it is deleted from shard 0. Every shard then continues above the highest id in
+     * any shard, so generated ids never collide with rows inserted with explicit ids.
+     */
+    @Bean
+    SmartInitializingSingleton shardCardIds(ShardRoutingDataSource dataSource) {
+        return () -> {
+            List<HikariDataSource> shards = dataSource.shards();
+            ShardRouting shardRouting = new ShardRouting(shards.size());
+            JdbcTemplate shardZero = new JdbcTemplate(shards.get(0));
+            for (Map<String, Object> row : shardZero.queryForList("SELECT id, amount, owner, version FROM cash_card")) {
+                int shard = shardRouting.shardOf((String) row.get("owner"));
+                if (shard != 0) {
+                    new JdbcTemplate(shards.get(shard)).update(
+                            "INSERT INTO cash_card (id, amount, owner, version) VALUES (?, ?, ?, ?)",
+                            row.get("id"), row.get("amount"), row.get("owner"), row.get("version"));
+                    shardZero.update("DELETE FROM cash_card WHERE id = ?", row.get("id"));
+                }
+            }
+            long maxId = 0;
+            for (HikariDataSource shard : shards) {
+                Long shardMaxId = new JdbcTemplate(shard).queryForObject("SELECT MAX(id) FROM cash_card", Long.class);
+                maxId = Math.max(maxId, shardMaxId == null ? 0 : shardMaxId);
+            }
+            for (int shard = 0; shard < shards.size(); shard++) {
+                // the smallest id above maxId whose residue is this shard
+                long start = maxId + 1 + Math.floorMod(shard - (maxId + 1), (long) shards.size());
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(shards.get(shard));
+                jdbcTemplate.execute("ALTER TABLE cash_card ALTER COLUMN ID SET INCREMENT BY " + shards.size());
+                jdbcTemplate.execute("ALTER TABLE cash_card ALTER COLUMN ID RESTART WITH " + start);
+            }
+        };
+    }
+}
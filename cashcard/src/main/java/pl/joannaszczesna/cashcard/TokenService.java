@@ -0,0 +1,100 @@
+package pl.joannaszczesna.cashcard;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.crypto.keygen.KeyGenerators;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.stream.Collectors;
+
+/**
+ * Issues and verifies self-contained bearer tokens.
+ * <p>
+ * A token is {@code base64url(payload) + "." + base64url(HMAC-SHA256(payload))}, where the payload holds
+ * the expiry, the granted authorities and the username. Verification needs no user lookup.
+ * Without a configured secret a random key is generated, so tokens do not survive a restart.
+ */
+@Component
+class TokenService {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec signingKey;
+    private final Duration ttl;
+    private final Clock clock;
+
+    @Autowired
+    TokenService(@Value("${cashcard.security.token.secret:}") String secret,
+                 @Value("${cashcard.security.token.ttl}") Duration ttl) {
+        this(secret, ttl, Clock.systemUTC());
+    }
+
+    TokenService(String secret, Duration ttl, Clock clock) {
+        byte[] key = secret.isBlank()
+                ? KeyGenerators.secureRandom(32).generateKey()
+                : Base64.getDecoder().decode(secret);
+        this.signingKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    AccessToken issue(Authentication authentication) {
+        Instant expiresAt = clock.instant().plus(ttl);
+        String authorities = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.joining(","));
+        String payload = expiresAt.getEpochSecond() + "\n" + authorities + "\n" + authentication.getName();
+        String encodedPayload = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return new AccessToken(encodedPayload + "." + ENCODER.encodeToString(sign(encodedPayload)), expiresAt);
+    }
+
+    /**
+     * @return the authentication carried by the token, or {@code null} when the token is malformed,
+     * tampered with or expired
+     */
+    Authentication verify(String token) {
+        int separator = token.indexOf('.');
+        if (separator < 1) {
+            return null;
+        }
+        String encodedPayload = token.substring(0, separator);
+        try {
+            byte[] signature = DECODER.decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(signature, sign(encodedPayload))) {
+                return null;
+            }
+            String[] payload = new String(DECODER.decode(encodedPayload), StandardCharsets.UTF_8).split("\n", 3);
+            if (payload.length != 3 || clock.instant().getEpochSecond() >= Long.parseLong(payload[0])) {
+                return null;
+            }
+            return new PreAuthenticatedAuthenticationToken(payload[2], null,
+                    AuthorityUtils.commaSeparatedStringToAuthorityList(payload[1]));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String encodedPayload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            return mac.doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Cannot sign token", ex);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package pl.joannaszczesna.cashcard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last entry of a ledger window, in the newest-first {@code id} ordering, encoded as an opaque
+ * token the same way as {@link KeysetCursor}.
+ */
+record TransactionCursor(Long id) {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    static TransactionCursor after(CashCardTransaction transaction) {
+        return new TransactionCursor(transaction.id());
+    }
+
+    /**
+     * @throws IllegalArgumentException when the token was not produced by {@link #encode()}
+     */
+    static TransactionCursor decode(String token) {
+        return new TransactionCursor(Long.valueOf(new String(DECODER.decode(token), StandardCharsets.UTF_8)));
+    }
+
+    String encode() {
+        return ENCODER.encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,6 +1,40 @@
 CREATE TABLE cash_card
 (
     ID     BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    AMOUNT NUMBER NOT NULL DEFAULT 0,
-    OWNER    VARCHAR(256) NOT NULL
-);
\ No newline at end of file
+    AMOUNT NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    OWNER    VARCHAR(256) NOT NULL,
+    -- optimistic lock of the row and source of its ETag; every UPDATE must increment it
+    VERSION  BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX cash_card_owner_amount_id ON cash_card (OWNER, AMOUNT, ID);
+
+-- Spring Security's JDBC user schema; the primary key serves the lookup by username
+CREATE TABLE users
+(
+    USERNAME VARCHAR(256) NOT NULL PRIMARY KEY,
+    PASSWORD VARCHAR(500) NOT NULL,
+    ENABLED  BOOLEAN      NOT NULL
+);
+
+CREATE TABLE authorities
+(
+    USERNAME  VARCHAR(256) NOT NULL,
+    AUTHORITY VARCHAR(50)  NOT NULL,
+    CONSTRAINT fk_authorities_users FOREIGN KEY (USERNAME) REFERENCES users (USERNAME)
+);
+
+CREATE UNIQUE INDEX ix_auth_username ON authorities (USERNAME, AUTHORITY);
+
+-- append-only history of balance changes; rows outlive the card and are never updated
+CREATE TABLE cash_card_transaction
+(
+    ID           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    CASH_CARD_ID BIGINT         NOT NULL,
+    OWNER        VARCHAR(256)   NOT NULL,
+    TYPE         VARCHAR(16)    NOT NULL,
+    AMOUNT       NUMERIC(19, 2) NOT NULL,
+    CREATED_AT   TIMESTAMP      NOT NULL
+);
+
+CREATE INDEX cash_card_transaction_card_id ON cash_card_transaction (CASH_CARD_ID, ID);
@@ -0,0 +1,84 @@
+package pl.joannaszczesna.cashcard;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Round trips through the CBOR and Smile mappers, built the same way as in {@link WebConfig}.
+ */
+@JsonTest
+class CashCardBinaryFormatTest {
+
+    @Autowired
+    private Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    @Autowired
+    private ObjectMapper jsonMapper;
+
+    private ObjectMapper mapper(String format) {
+        JsonFactory factory = switch (format) {
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> throw new IllegalArgumentException(format);
+        };
+        return objectMapperBuilder.factory(factory).build();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"cbor", "smile"})
+    void cashCardRoundTripTest(String format) throws IOException {
+        ObjectMapper mapper = mapper(format);
+        CashCard cashCard = new CashCard(99L, new BigDecimal("123.45"), "sarah1");
+
+        byte[] bytes = mapper.writeValueAsBytes(cashCard);
+
+        assertThat(mapper.readValue(bytes, CashCard.class)).isEqualTo(cashCard);
+        assertThat(bytes.length).isLessThan(jsonMapper.writeValueAsBytes(cashCard).length);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"cbor", "smile"})
+    void cashCardListRoundTripTest(String format) throws IOException {
+        ObjectMapper mapper = mapper(format);
+        CashCard[] cashCards = {
+                new CashCard(99L, new BigDecimal("123.45"), "sarah1"),
+                new CashCard(100L, new BigDecimal("1.00"), "sarah1"),
+                new CashCard(101L, new BigDecimal("150.00"), "sarah1")};
+
+        assertThat(mapper.readValue(mapper.writeValueAsBytes(cashCards), CashCard[].class)).isEqualTo(cashCards);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"cbor", "smile"})
+    void cashCardAmountKeepsExactDecimalTest(String format) throws IOException {
+        ObjectMapper mapper = mapper(format);
+        CashCard largeAmount = new CashCard(2L, new BigDecimal("12345678901234567.89"), "sarah1");
+
+        assertThat(mapper.readValue(mapper.writeValueAsBytes(largeAmount), CashCard.class).amount())
+                .isEqualTo(new BigDecimal("12345678901234567.89"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"cbor", "smile"})
+    void cashCardAmountWithFractionOfCentIsRejectedTest(String format) throws IOException {
+        ObjectMapper mapper = mapper(format);
+        byte[] bytes = mapper.writeValueAsBytes(Map.of("id", 1, "amount", new BigDecimal("1.005"), "owner", "sarah1"));
+
+        assertThatThrownBy(() -> mapper.readValue(bytes, CashCard.class)).isInstanceOf(JsonMappingException.class);
+    }
+}
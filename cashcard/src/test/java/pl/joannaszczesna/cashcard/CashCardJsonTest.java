@@ -2,6 +2,7 @@ package pl.joannaszczesna.cashcard;
 
 import org.assertj.core.util.Arrays;
 import org.h2.store.Data;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,8 +10,10 @@ import org.springframework.boot.test.autoconfigure.json.JsonTest;
 import org.springframework.boot.test.json.JacksonTester;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @JsonTest
 public class CashCardJsonTest {
@@ -26,9 +29,9 @@ public class CashCardJsonTest {
     @BeforeEach
     void setUp() {
         cashCards = Arrays.array(
-                new CashCard(99L, 123.45, "sarah1"),
-                new CashCard(100L, 1.00, "sarah1"),
-                new CashCard(101L, 150.00, "sarah1"));
+                new CashCard(99L, new BigDecimal("123.45"), "sarah1"),
+                new CashCard(100L, new BigDecimal("1.00"), "sarah1"),
+                new CashCard(101L, new BigDecimal("150.00"), "sarah1"));
     }
 
     @Test
@@ -53,9 +56,40 @@ public class CashCardJsonTest {
            }
            """;
         assertThat(json.parse(expected))
-                .isEqualTo(new CashCard(99L, 111.11, "sarah1"));
+                .isEqualTo(new CashCard(99L, new BigDecimal("111.11"), "sarah1"));
         assertThat(json.parseObject(expected).id()).isEqualTo(99);
-        assertThat(json.parseObject(expected).amount()).isEqualTo(111.11);
+        assertThat(json.parseObject(expected).amount()).isEqualTo(new BigDecimal("111.11"));
+    }
+
+    @Test
+    void cashCardAmountSerializationKeepsExactDecimalTest() throws IOException {
+        CashCard smallAmount = new CashCard(1L, new BigDecimal("0.10"), "sarah1");
+        CashCard largeAmount = new CashCard(2L, new BigDecimal("12345678901234567.89"), "sarah1");
+
+        assertThat(json.write(smallAmount).getJson()).contains("\"amount\":0.10");
+        assertThat(json.write(largeAmount).getJson()).contains("\"amount\":12345678901234567.89");
+    }
+
+    @Test
+    void cashCardAmountDeserializationKeepsExactDecimalTest() throws IOException {
+        String smallAmount = """
+           {"id": 1, "amount": 0.1, "owner": "sarah1"}
+           """;
+        String largeAmount = """
+           {"id": 2, "amount": 12345678901234567.89, "owner": "sarah1"}
+           """;
+
+        assertThat(json.parseObject(smallAmount).amount()).isEqualTo(new BigDecimal("0.10"));
+        assertThat(json.parseObject(largeAmount).amount()).isEqualTo(new BigDecimal("12345678901234567.89"));
+    }
+
+    @Test
+    void cashCardAmountWithFractionOfCentIsRejectedTest() {
+        String expected = """
+           {"id": 1, "amount": 1.005, "owner": "sarah1"}
+           """;
+
+        assertThatThrownBy(() -> json.parse(expected)).isInstanceOf(JsonMappingException.class);
     }
 
     @Test
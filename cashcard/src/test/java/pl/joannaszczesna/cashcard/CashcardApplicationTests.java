@@ -2,6 +2,8 @@ package pl.joannaszczesna.cashcard;
 
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import net.minidev.json.JSONArray;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -9,14 +11,29 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.UserDetailsManager;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
 
+import java.math.BigDecimal;
 import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
@@ -34,6 +51,24 @@ class CashcardApplicationTests {
     @Autowired
     TestRestTemplate restTemplate;
 
+    @Autowired
+    CachingAuthenticationProvider authenticationProvider;
+
+    @Autowired
+    CashCardCache cashCardCache;
+
+    @Autowired
+    ExpiringUserCache userCache;
+
+    @Autowired
+    UserDetailsManager users;
+
+    @Autowired
+    PasswordEncoder passwordEncoder;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @Nested
     class GetRead {
         @Test
@@ -125,11 +160,250 @@ class CashcardApplicationTests {
         }
     }
 
+    @Nested
+    class GetSummary {
+        @Test
+        void whenSummaryIsRequested_returnAggregatesOfOwnedCashCards() {
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity("/cashcards/summary", String.class);
+
+            DocumentContext documentContext = JsonPath.parse(response.getBody());
+            Number cardCount = documentContext.read("$.cardCount");
+            Double totalAmount = documentContext.read("$.totalAmount");
+            Double minAmount = documentContext.read("$.minAmount");
+            Double maxAmount = documentContext.read("$.maxAmount");
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(cardCount).isEqualTo(3);
+            assertThat(totalAmount).isEqualTo(274.45);
+            assertThat(minAmount).isEqualTo(1.00);
+            assertThat(maxAmount).isEqualTo(150.00);
+        }
+    }
+
+    @Nested
+    class GetScroll {
+        @Test
+        void whenScrollingWithCursor_returnConsecutiveWindowsSortedByAmount() {
+            ResponseEntity<String> firstResponse = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity("/cashcards/scroll?size=2", String.class);
+            DocumentContext firstWindow = JsonPath.parse(firstResponse.getBody());
+            JSONArray firstAmounts = firstWindow.read("$.content[*].amount");
+            String next = firstWindow.read("$.next");
+
+            ResponseEntity<String> secondResponse = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity("/cashcards/scroll?size=2&cursor=" + next, String.class);
+            DocumentContext secondWindow = JsonPath.parse(secondResponse.getBody());
+            JSONArray secondAmounts = secondWindow.read("$.content[*].amount");
+
+            assertThat(firstResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(firstAmounts).containsExactly(1.00, 123.45);
+            assertThat(next).isNotBlank();
+            assertThat(secondResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(secondAmounts).containsExactly(150.00);
+            assertThat((Object) secondWindow.read("$.next")).isNull();
+        }
+
+        @Test
+        void whenCursorIsMalformed_returnBadRequest() {
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity("/cashcards/scroll?cursor=not-a-cursor", String.class);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @Nested
+    class GetExport {
+        @Test
+        void whenExportIsRequested_streamEveryCashCardAsOneJsonLine() {
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity("/cashcards/export", String.class);
+
+            List<String> lines = response.getBody().lines().toList();
+            List<Number> ids = lines.stream().map(line -> JsonPath.parse(line).<Number>read("$.id")).toList();
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+            assertThat(ids).containsExactly(100, 99, 101);
+        }
+
+        @Test
+        void whenExportIsRequestedAsJson_streamOneJsonArray() {
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity("/cashcards/export?format=json", String.class);
+
+            JSONArray amounts = JsonPath.parse(response.getBody()).read("$..amount");
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(amounts).containsExactly(1.00, 123.45, 150.00);
+        }
+    }
+
+    @Nested
+    class WireFormat {
+        private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+        private HttpEntity<Object> accepting(MediaType mediaType) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setAccept(List.of(mediaType));
+            return new HttpEntity<>(headers);
+        }
+
+        @Test
+        void whenCborIsAccepted_returnACashCardAsCbor() {
+            ResponseEntity<CashCard> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .exchange(PATH_SARAH_OWNERSHIP, HttpMethod.GET, accepting(MediaType.APPLICATION_CBOR),
+                            CashCard.class);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_CBOR);
+            assertThat(response.getHeaders().getVary()).contains(HttpHeaders.ACCEPT);
+            assertThat(response.getBody()).isEqualTo(new CashCard(99L, new BigDecimal("123.45"), OWNER_SARAH));
+        }
+
+        @Test
+        void whenSmileIsAccepted_returnAllCashCardsAsSmile() {
+            ResponseEntity<CashCard[]> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .exchange(PATH_CASHCARDS, HttpMethod.GET, accepting(APPLICATION_SMILE), CashCard[].class);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getHeaders().getContentType()).isEqualTo(APPLICATION_SMILE);
+            assertThat(response.getBody()).extracting(CashCard::amount).containsExactlyInAnyOrder(
+                    new BigDecimal("123.45"), new BigDecimal("1.00"), new BigDecimal("150.00"));
+        }
+
+        @Test
+        void whenCashCardIsSentAsCbor_ReturnStatusCreated() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_CBOR);
+            ResponseEntity<Void> createResponse = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .postForEntity(PATH_CASHCARDS,
+                            new HttpEntity<>(new CashCard(null, new BigDecimal("250.00"), null), headers), Void.class);
+
+            ResponseEntity<String> getResponse = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(createResponse.getHeaders().getLocation(), String.class);
+
+            assertThat(createResponse.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+            assertThat(JsonPath.parse(getResponse.getBody()).<Double>read("$.amount")).isEqualTo(250.00);
+        }
+
+        @Test
+        void whenAnyTypeIsAccepted_returnJson() {
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .exchange(PATH_SARAH_OWNERSHIP, HttpMethod.GET, accepting(MediaType.ALL), String.class);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = "cashcard.ledger.durability=sync")
+    class GetTransactions {
+        @Test
+        void whenBalanceChanges_returnEveryChangeNewestFirst() {
+            URI location = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .postForEntity(PATH_CASHCARDS, new CashCard(null, new BigDecimal("250.00"), null), Void.class)
+                    .getHeaders().getLocation();
+            restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .put(location, new CashCard(null, new BigDecimal("19.99"), null));
+            restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .postForEntity(location + "/adjust", new BalanceAdjustment(new BigDecimal("-1.00")), Void.class);
+
+            ResponseEntity<String> first = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(location.getPath() + "/transactions?size=2", String.class);
+            DocumentContext firstWindow = JsonPath.parse(first.getBody());
+            String next = firstWindow.read("$.next");
+            ResponseEntity<String> second = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(location.getPath() + "/transactions?size=2&cursor=" + next, String.class);
+            DocumentContext secondWindow = JsonPath.parse(second.getBody());
+
+            assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(firstWindow.<JSONArray>read("$.content[*].type")).containsExactly("ADJUST", "UPDATE");
+            assertThat(firstWindow.<JSONArray>read("$.content[*].amount")).containsExactly(-1.00, 19.99);
+            assertThat(firstWindow.<JSONArray>read("$.content[*].owner")).isEmpty();
+            assertThat(secondWindow.<JSONArray>read("$.content[*].type")).containsExactly("CREATE");
+            assertThat(secondWindow.<JSONArray>read("$.content[*].amount")).containsExactly(250.00);
+            assertThat(secondWindow.<String>read("$.next")).isNull();
+        }
+
+        @Test
+        void whenCashCardsAreUpdatedInBatch_recordEachOne() {
+            restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .exchange("/cashcards/batch", HttpMethod.PATCH,
+                            new HttpEntity<>(List.of(new CashCard(99L, new BigDecimal("5.00"), null))), String.class);
+
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP + "/transactions", String.class);
+
+            assertThat(JsonPath.parse(response.getBody()).<JSONArray>read("$.content[*].type"))
+                    .containsExactly("UPDATE");
+        }
+
+        @Test
+        void whenCashCardIsOwnedBySomeoneElse_returnNotFound() {
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity("/cashcards/102/transactions", String.class);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        }
+
+        @Test
+        void whenCursorIsMalformed_returnBadRequest() {
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP + "/transactions?cursor=not-a-cursor", String.class);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @Nested
+    class AsyncLedger {
+        @Test
+        void whenBalanceChanges_recordItOnceTheBufferIsDrained() {
+            ResponseEntity<Void> adjusted = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .postForEntity(PATH_SARAH_OWNERSHIP + "/adjust", new BalanceAdjustment(new BigDecimal("2.50")),
+                            Void.class);
+
+            assertThat(adjusted.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+            await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+                ResponseEntity<String> response = restTemplate
+                        .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                        .getForEntity(PATH_SARAH_OWNERSHIP + "/transactions", String.class);
+                DocumentContext documentContext = JsonPath.parse(response.getBody());
+                assertThat(documentContext.<JSONArray>read("$.content[*].type")).containsExactly("ADJUST");
+                assertThat(documentContext.<JSONArray>read("$.content[*].amount")).containsExactly(2.50);
+            });
+        }
+    }
+
     @Nested
     class PostCreate {
         @Test
         void whenCreateANewCashCard_ReturnStatusCreated() {
-            CashCard newCashCard = new CashCard(null, 250.00, null);
+            CashCard newCashCard = new CashCard(null, new BigDecimal("250.00"), null);
             ResponseEntity<Void> createResponse = restTemplate
                     .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
                     .postForEntity(PATH_CASHCARDS, newCashCard, Void.class);
@@ -148,6 +422,61 @@ class CashcardApplicationTests {
             assertThat(id).isNotNull();
             assertThat(amount).isEqualTo(250.00);
         }
+
+        private ResponseEntity<Void> createWithIdempotencyKey(String idempotencyKey, String amount) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Idempotency-Key", idempotencyKey);
+            return restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .postForEntity(PATH_CASHCARDS,
+                            new HttpEntity<>(new CashCard(null, new BigDecimal(amount), null), headers), Void.class);
+        }
+
+        private int countSarahCashCards() {
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity("/cashcards/summary", String.class);
+            return JsonPath.parse(response.getBody()).read("$.cardCount");
+        }
+
+        @Test
+        void whenRequestIsRetriedWithTheSameIdempotencyKey_createOnlyOneCashCard() {
+            ResponseEntity<Void> first = createWithIdempotencyKey("retry-1", "250.00");
+            ResponseEntity<Void> retry = createWithIdempotencyKey("retry-1", "250.00");
+
+            assertThat(first.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+            assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+            assertThat(retry.getHeaders().getLocation()).isEqualTo(first.getHeaders().getLocation());
+            assertThat(countSarahCashCards()).isEqualTo(4);
+        }
+
+        @Test
+        void whenDuplicatesArriveConcurrently_createOnlyOneCashCard() throws Exception {
+            List<Callable<ResponseEntity<Void>>> duplicates = IntStream.range(0, 20)
+                    .<Callable<ResponseEntity<Void>>>mapToObj(i -> () -> createWithIdempotencyKey("storm-1", "10.00"))
+                    .toList();
+            List<Future<ResponseEntity<Void>>> responses;
+            try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+                responses = executor.invokeAll(duplicates);
+            }
+            URI location = responses.get(0).get().getHeaders().getLocation();
+            for (Future<ResponseEntity<Void>> response : responses) {
+                assertThat(response.get().getStatusCode()).isEqualTo(HttpStatus.CREATED);
+                assertThat(response.get().getHeaders().getLocation()).isEqualTo(location);
+            }
+
+            assertThat(countSarahCashCards()).isEqualTo(4);
+        }
+
+        @Test
+        void whenIdempotencyKeyIsReusedForAnotherAmount_rejectRequest() {
+            createWithIdempotencyKey("reused-1", "250.00");
+
+            ResponseEntity<Void> response = createWithIdempotencyKey("reused-1", "99.00");
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+            assertThat(countSarahCashCards()).isEqualTo(4);
+        }
     }
 
     @Nested
@@ -183,6 +512,196 @@ class CashcardApplicationTests {
             assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
         }
 
+        @Test
+        void whenCredentialsWereAlreadyVerified_reuseCachedVerification() {
+            restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+            long hitsAfterFirstRequest = authenticationProvider.cache().hitCount();
+
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(authenticationProvider.cache().hitCount()).isGreaterThan(hitsAfterFirstRequest);
+        }
+
+        @Test
+        void whenUserWasAlreadyLoaded_reuseCachedUser() {
+            restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+            long hitsAfterFirstRequest = userCache.cache().hitCount();
+
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(userCache.cache().hitCount()).isGreaterThan(hitsAfterFirstRequest);
+        }
+
+        @Test
+        void whenPasswordIsWrongAfterSuccessfulLogin_rejectUser() {
+            restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, "BAD-PASSWORD")
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        }
+
+        @Test
+        void whenPasswordIsChanged_rejectOldPasswordRightAway() {
+            restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+
+            users.updateUser(User.withUsername(OWNER_SARAH)
+                    .password(passwordEncoder.encode("new-password"))
+                    .roles("CARD-OWNER")
+                    .build());
+            ResponseEntity<String> oldPassword = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+            ResponseEntity<String> newPassword = restTemplate
+                    .withBasicAuth(OWNER_SARAH, "new-password")
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+
+            assertThat(oldPassword.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+            assertThat(newPassword.getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+
+        @Test
+        void whenUserIsDisabled_rejectUserRightAway() {
+            restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+
+            users.updateUser(User.withUserDetails(users.loadUserByUsername(OWNER_SARAH)).disabled(true).build());
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        }
+    }
+
+    @Nested
+    class Metrics {
+        @Test
+        void whenCashCardIsRead_recordRequestQueryAndAuthenticationTimings() {
+            restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+            restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+
+            // the server timer stops after the response was written, so it may lag behind the client
+            await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                    assertThat(meterRegistry.find("http.server.requests")
+                            .tag("uri", "/cashcards/{requestedId}")
+                            .tag("status", "200")
+                            .timers()).singleElement().extracting(Timer::count).isEqualTo(2L));
+            assertThat(meterRegistry.get("spring.data.repository.invocations")
+                    .tag("repository", "CashCardRepository")
+                    .tag("method", "findByIdAndOwner")
+                    .timer().count()).isEqualTo(1);
+            assertThat(meterRegistry.get("cashcard.authentication")
+                    .tag("result", "verified")
+                    .timer().count()).isEqualTo(1);
+            assertThat(meterRegistry.get("cashcard.authentication")
+                    .tag("result", "cached")
+                    .timer().count()).isEqualTo(1);
+        }
+
+        @Test
+        void whenPasswordIsWrong_recordRejectedAuthentication() {
+            restTemplate
+                    .withBasicAuth(OWNER_SARAH, "BAD-PASSWORD")
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+
+            assertThat(meterRegistry.get("cashcard.authentication")
+                    .tag("result", "rejected")
+                    .timer().count()).isEqualTo(1);
+        }
+
+        @Test
+        void whenActuatorIsRequested_exposeOnlyHealthToEveryone() {
+            ResponseEntity<String> health = restTemplate.getForEntity("/actuator/health", String.class);
+            ResponseEntity<String> anonymous = restTemplate.getForEntity("/actuator/prometheus", String.class);
+            ResponseEntity<String> cardOwner = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity("/actuator/prometheus", String.class);
+            ResponseEntity<String> ops = restTemplate
+                    .withBasicAuth("ops1", "abc123")
+                    .getForEntity("/actuator/prometheus", String.class);
+
+            assertThat(health.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(anonymous.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+            assertThat(cardOwner.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+            assertThat(ops.getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+    }
+
+    @Nested
+    class TokenAuthentication {
+        private String obtainToken(String username, String password) {
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(username, password)
+                    .postForEntity("/auth/token", null, String.class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            return JsonPath.parse(response.getBody()).read("$.token");
+        }
+
+        private ResponseEntity<String> getWithToken(String url, String token) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBearerAuth(token);
+            return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        }
+
+        @Test
+        void whenTokenIsValid_returnACashCard() {
+            String token = obtainToken(OWNER_SARAH, PASSWORD_SARAH);
+
+            ResponseEntity<String> response = getWithToken(PATH_SARAH_OWNERSHIP, token);
+
+            DocumentContext documentContext = JsonPath.parse(response.getBody());
+            Number id = documentContext.read("$.id");
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(id).isEqualTo(EXIST_ID);
+        }
+
+        @Test
+        void whenTokenIsTampered_rejectRequest() {
+            String token = obtainToken(OWNER_SARAH, PASSWORD_SARAH);
+            String tampered = (token.charAt(0) == 'A' ? "B" : "A") + token.substring(1);
+
+            ResponseEntity<String> response = getWithToken(PATH_SARAH_OWNERSHIP, tampered);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        }
+
+        @Test
+        void whenTokenBelongsToUserWithoutCards_rejectUser() {
+            String token = obtainToken("hank-owns-no-cards", "qrs456");
+
+            ResponseEntity<String> response = getWithToken(PATH_SARAH_OWNERSHIP, token);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        }
+
+        @Test
+        void whenRequestingTokenWithoutCredentials_rejectRequest() {
+            ResponseEntity<String> response = restTemplate.postForEntity("/auth/token", null, String.class);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        }
     }
 
     @Nested
@@ -191,7 +710,7 @@ class CashcardApplicationTests {
         @Test
         void whenCashCardExisting_update() {
             Double newAmount = 19.99;
-            CashCard cashCardUpdate = new CashCard(null, newAmount, null);
+            CashCard cashCardUpdate = new CashCard(null, BigDecimal.valueOf(newAmount), null);
             HttpEntity<CashCard> request = new HttpEntity<>(cashCardUpdate);
             ResponseEntity<Void> putResponse = restTemplate
                     .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
@@ -214,7 +733,7 @@ class CashcardApplicationTests {
         @Test
         void whenACashCardThatDoesNotExist_notUpdate() {
             Double newAmount = 19.99;
-            CashCard unknownCard = new CashCard(null, newAmount, null);
+            CashCard unknownCard = new CashCard(null, BigDecimal.valueOf(newAmount), null);
             HttpEntity<CashCard> request = new HttpEntity<>(unknownCard);
             ResponseEntity<Void> response = restTemplate
                     .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
@@ -225,7 +744,7 @@ class CashcardApplicationTests {
 
         @Test
         void whenACashCardThatIsOwnedBySomeoneElse_notUpdate() {
-            CashCard johnCard = new CashCard(null, 333.33, null);
+            CashCard johnCard = new CashCard(null, new BigDecimal("333.33"), null);
             HttpEntity<CashCard> request = new HttpEntity<>(johnCard);
             ResponseEntity<Void> response = restTemplate
                     .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
@@ -235,6 +754,300 @@ class CashcardApplicationTests {
         }
     }
 
+    @Nested
+    class ConditionalRequests {
+        private ResponseEntity<String> getSarah(String path, String ifNoneMatch) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setIfNoneMatch(ifNoneMatch);
+            return restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .exchange(path, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        }
+
+        private ResponseEntity<Void> writeSarah(HttpMethod method, Object body, String ifMatch) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setIfMatch(ifMatch);
+            return restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .exchange(PATH_SARAH_OWNERSHIP, method, new HttpEntity<>(body, headers), Void.class);
+        }
+
+        @Test
+        void whenCashCardIsUnchanged_returnNotModifiedWithoutBody() {
+            ResponseEntity<String> first = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+            String eTag = first.getHeaders().getETag();
+
+            ResponseEntity<String> second = getSarah(PATH_SARAH_OWNERSHIP, eTag);
+
+            assertThat(eTag).isNotNull().doesNotStartWith("W/");
+            assertThat(second.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+            assertThat(second.getHeaders().getETag()).isEqualTo(eTag);
+            assertThat(second.getBody()).isNull();
+        }
+
+        @Test
+        void whenCashCardChanges_returnItWithANewETag() {
+            String cardETag = getSarah(PATH_SARAH_OWNERSHIP, "\"none\"").getHeaders().getETag();
+            String listETag = getSarah(PATH_CASHCARDS, "\"none\"").getHeaders().getETag();
+
+            restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .postForEntity(PATH_SARAH_OWNERSHIP + "/adjust", new BalanceAdjustment(new BigDecimal("1.00")),
+                            Void.class);
+            ResponseEntity<String> card = getSarah(PATH_SARAH_OWNERSHIP, cardETag);
+            ResponseEntity<String> list = getSarah(PATH_CASHCARDS, listETag);
+
+            assertThat(card.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(card.getHeaders().getETag()).isNotEqualTo(cardETag);
+            assertThat(JsonPath.parse(card.getBody()).<Double>read("$.amount")).isEqualTo(124.45);
+            assertThat(list.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(list.getHeaders().getETag()).isNotEqualTo(listETag);
+        }
+
+        @Test
+        void whenIfMatchIsStale_rejectUpdateAndDelete() {
+            String eTag = getSarah(PATH_SARAH_OWNERSHIP, "\"none\"").getHeaders().getETag();
+            CashCard cashCardUpdate = new CashCard(null, new BigDecimal("19.99"), null);
+
+            ResponseEntity<Void> update = writeSarah(HttpMethod.PUT, cashCardUpdate, eTag);
+            ResponseEntity<Void> staleUpdate = writeSarah(HttpMethod.PUT, cashCardUpdate, eTag);
+            ResponseEntity<Void> staleDelete = writeSarah(HttpMethod.DELETE, null, eTag);
+            ResponseEntity<Void> delete = writeSarah(HttpMethod.DELETE, null, update.getHeaders().getETag());
+
+            assertThat(update.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+            assertThat(update.getHeaders().getETag()).isNotNull().isNotEqualTo(eTag);
+            assertThat(staleUpdate.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+            assertThat(staleDelete.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+            assertThat(delete.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        }
+
+        @Test
+        void whenCashCardIsReadInAnotherFormat_tagItWithAnotherETag() {
+            String jsonETag = getSarah(PATH_SARAH_OWNERSHIP, "\"none\"").getHeaders().getETag();
+            HttpHeaders headers = new HttpHeaders();
+            headers.setAccept(List.of(MediaType.APPLICATION_CBOR));
+            headers.setIfNoneMatch(jsonETag);
+
+            ResponseEntity<byte[]> cbor = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .exchange(PATH_SARAH_OWNERSHIP, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+            ResponseEntity<Void> update = writeSarah(HttpMethod.PUT, new CashCard(null, new BigDecimal("19.99"), null),
+                    cbor.getHeaders().getETag());
+
+            assertThat(cbor.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(cbor.getHeaders().getETag()).isNotNull().doesNotStartWith("W/").isNotEqualTo(jsonETag);
+            assertThat(update.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        }
+    }
+
+    @Nested
+    class CardCache {
+        @Test
+        void whenCashCardIsReadAgain_serveItFromCache() {
+            restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+            long hitsAfterFirstRead = cashCardCache.cache().hitCount();
+
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(cashCardCache.cache().hitCount()).isGreaterThan(hitsAfterFirstRead);
+        }
+
+        @Test
+        void whenCachedCashCardIsUpdated_neverReturnStaleAmount() {
+            restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+            HttpEntity<CashCard> request = new HttpEntity<>(new CashCard(null, new BigDecimal("42.00"), null));
+            restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .exchange(PATH_SARAH_OWNERSHIP, HttpMethod.PUT, request, Void.class);
+
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+
+            Double amount = JsonPath.parse(response.getBody()).read("$.amount");
+            assertThat(amount).isEqualTo(42.00);
+        }
+    }
+
+    @Nested
+    class PostAdjust {
+        private ResponseEntity<Void> adjust(String url, double amount) {
+            return restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .postForEntity(url, new BalanceAdjustment(BigDecimal.valueOf(amount)), Void.class);
+        }
+
+        @Test
+        void whenManyClientsAdjustOneCashCard_noUpdateIsLost() throws Exception {
+            int adjustments = 40;
+            List<Callable<ResponseEntity<Void>>> credits = IntStream.range(0, adjustments)
+                    .<Callable<ResponseEntity<Void>>>mapToObj(i -> () -> adjust("/cashcards/100/adjust", 1.00))
+                    .toList();
+            List<Future<ResponseEntity<Void>>> responses;
+            try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+                responses = executor.invokeAll(credits);
+            }
+            for (Future<ResponseEntity<Void>> response : responses) {
+                assertThat(response.get().getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+            }
+
+            ResponseEntity<String> getResponse = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity("/cashcards/100", String.class);
+            Double amount = JsonPath.parse(getResponse.getBody()).read("$.amount");
+
+            assertThat(amount).isEqualTo(41.00);
+        }
+
+        @Test
+        void whenDebitExceedsBalance_rejectAdjustment() {
+            ResponseEntity<Void> response = adjust(PATH_SARAH_OWNERSHIP + "/adjust", -200.00);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        }
+
+        @Test
+        void whenCashCardIsOwnedBySomeoneElse_notAdjust() {
+            ResponseEntity<Void> response = adjust("/cashcards/102/adjust", 10.00);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = {"cashcard.rate-limit.write.rate=0.1", "cashcard.rate-limit.write.burst=2"})
+    class RateLimiting {
+        private ResponseEntity<Void> credit(String username, String password, String url) {
+            return restTemplate
+                    .withBasicAuth(username, password)
+                    .postForEntity(url, new BalanceAdjustment(BigDecimal.ONE), Void.class);
+        }
+
+        @Test
+        void whenOwnerExceedsWriteRate_rejectWithRetryAfter() {
+            ResponseEntity<Void> first = credit(OWNER_SARAH, PASSWORD_SARAH, "/cashcards/100/adjust");
+            ResponseEntity<Void> second = credit(OWNER_SARAH, PASSWORD_SARAH, "/cashcards/100/adjust");
+            ResponseEntity<Void> third = credit(OWNER_SARAH, PASSWORD_SARAH, "/cashcards/100/adjust");
+
+            assertThat(first.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+            assertThat(second.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+            assertThat(third.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+            assertThat(Long.parseLong(third.getHeaders().getFirst(HttpHeaders.RETRY_AFTER))).isBetween(1L, 10L);
+        }
+
+        @Test
+        void whenOneOwnerIsLimited_otherOwnersAndReadsAreNot() {
+            for (int i = 0; i < 3; i++) {
+                credit(OWNER_SARAH, PASSWORD_SARAH, "/cashcards/100/adjust");
+            }
+
+            ResponseEntity<Void> otherOwner = credit("john2", "xyz789", "/cashcards/102/adjust");
+            ResponseEntity<String> read = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+
+            assertThat(otherOwner.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+            assertThat(read.getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = "cashcard.load-shedding.latency-threshold=0ms")
+    class LoadShedding {
+        private double concurrencyLimit() {
+            return meterRegistry.get("cashcard.concurrency.limit").gauge().value();
+        }
+
+        @Test
+        void whenExportOrBatchIsSlow_keepTheConcurrencyLimit() {
+            TestRestTemplate sarah = restTemplate.withBasicAuth(OWNER_SARAH, PASSWORD_SARAH);
+            double initialLimit = concurrencyLimit();
+
+            sarah.getForEntity("/cashcards/export", String.class);
+            sarah.postForEntity("/cashcards/batch",
+                    List.of(new CashCard(null, new BigDecimal("1.00"), null)), String.class);
+            double afterExportAndBatch = concurrencyLimit();
+            sarah.getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+
+            assertThat(afterExportAndBatch).isEqualTo(initialLimit);
+            assertThat(concurrencyLimit()).isLessThan(initialLimit);
+        }
+    }
+
+    @Nested
+    class Batch {
+        @Test
+        void whenCreatingManyCashCards_returnResultPerItem() {
+            List<CashCard> newCashCards = List.of(
+                    new CashCard(null, new BigDecimal("10.00"), null),
+                    new CashCard(null, null, null),
+                    new CashCard(null, new BigDecimal("30.00"), null));
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .postForEntity("/cashcards/batch", newCashCards, String.class);
+
+            DocumentContext documentContext = JsonPath.parse(response.getBody());
+            JSONArray statuses = documentContext.read("$[*].status");
+            Number createdId = documentContext.read("$[2].id");
+
+            ResponseEntity<String> getResponse = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_CASHCARDS + "/" + createdId, String.class);
+            Double amount = JsonPath.parse(getResponse.getBody()).read("$.amount");
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(statuses).containsExactly(201, 400, 201);
+            assertThat(getResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(amount).isEqualTo(30.00);
+        }
+
+        @Test
+        void whenUpdatingManyCashCards_updateOnlyOwnedOnes() {
+            List<CashCard> updates = List.of(
+                    new CashCard(99L, new BigDecimal("19.99"), null),
+                    new CashCard(102L, new BigDecimal("333.33"), null));
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .exchange("/cashcards/batch", HttpMethod.PATCH, new HttpEntity<>(updates), String.class);
+            JSONArray statuses = JsonPath.parse(response.getBody()).read("$[*].status");
+
+            ResponseEntity<String> getResponse = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity(PATH_SARAH_OWNERSHIP, String.class);
+            Double amount = JsonPath.parse(getResponse.getBody()).read("$.amount");
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(statuses).containsExactly(204, 404);
+            assertThat(amount).isEqualTo(19.99);
+        }
+
+        @Test
+        void whenDeletingManyCashCards_deleteOnlyOwnedOnes() {
+            ResponseEntity<String> response = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .exchange("/cashcards/batch", HttpMethod.DELETE, new HttpEntity<>(List.of(100L, 102L)),
+                            String.class);
+            JSONArray statuses = JsonPath.parse(response.getBody()).read("$[*].status");
+
+            ResponseEntity<String> getResponse = restTemplate
+                    .withBasicAuth(OWNER_SARAH, PASSWORD_SARAH)
+                    .getForEntity("/cashcards/100", String.class);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(statuses).containsExactly(204, 404);
+            assertThat(getResponse.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        }
+    }
+
     @Nested
     class DeleteRemove {
         @Test
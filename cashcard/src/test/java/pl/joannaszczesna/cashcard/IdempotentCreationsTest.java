@@ -0,0 +1,101 @@
+package pl.joannaszczesna.cashcard;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotentCreationsTest {
+    private static final CashCard CARD = new CashCard(1L, new BigDecimal("10.00"), "sarah1");
+    private static final Consumer<CashCard> NOTHING = card -> {
+    };
+
+    private final AtomicInteger inserts = new AtomicInteger();
+
+    private CashCard insert() {
+        inserts.incrementAndGet();
+        return CARD;
+    }
+
+    @Test
+    void whenOtherKeysFillTheCache_keepThePendingCreation() throws Exception {
+        IdempotentCreations creations = new IdempotentCreations(1, Duration.ofHours(1), Duration.ofSeconds(5));
+        CountDownLatch inserting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<?> first = CompletableFuture.runAsync(() -> creations.create("sarah1", "key", () -> {
+            inserting.countDown();
+            await(release);
+            return insert();
+        }, NOTHING));
+        inserting.await();
+
+        creations.create("sarah1", "other-1", this::insert, NOTHING);
+        creations.create("sarah1", "other-2", this::insert, NOTHING);
+        CompletableFuture<?> retry = CompletableFuture.runAsync(() ->
+                creations.create("sarah1", "key", this::insert, NOTHING));
+        release.countDown();
+        first.join();
+        retry.join();
+
+        assertThat(inserts).hasValue(3);
+    }
+
+    @Test
+    void whenFirstRequestIsStuck_stopWaitingAfterTheTimeout() throws Exception {
+        IdempotentCreations creations = new IdempotentCreations(10, Duration.ofHours(1), Duration.ofMillis(50));
+        CountDownLatch inserting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<?> first = CompletableFuture.runAsync(() -> creations.create("sarah1", "key", () -> {
+            inserting.countDown();
+            await(release);
+            return insert();
+        }, NOTHING));
+        inserting.await();
+
+        assertThat(creations.create("sarah1", "key", this::insert, NOTHING)).isEmpty();
+        release.countDown();
+        first.join();
+        assertThat(creations.create("sarah1", "key", this::insert, NOTHING)).contains(CARD);
+        assertThat(inserts).hasValue(1);
+    }
+
+    @Test
+    void whenRecordingFailsAfterTheInsert_keepTheKey() {
+        IdempotentCreations creations = new IdempotentCreations(10, Duration.ofHours(1), Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> creations.create("sarah1", "key", this::insert, card -> {
+            throw new IllegalStateException("ledger down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(creations.create("sarah1", "key", this::insert, NOTHING)).contains(CARD);
+        assertThat(inserts).hasValue(1);
+    }
+
+    @Test
+    void whenInsertFails_forgetTheKey() {
+        IdempotentCreations creations = new IdempotentCreations(10, Duration.ofHours(1), Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> creations.create("sarah1", "key", () -> {
+            throw new IllegalStateException("database down");
+        }, NOTHING)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(creations.create("sarah1", "key", this::insert, NOTHING)).contains(CARD);
+        assertThat(inserts).hasValue(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+}
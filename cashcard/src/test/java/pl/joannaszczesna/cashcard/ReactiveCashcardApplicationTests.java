@@ -0,0 +1,294 @@
+package pl.joannaszczesna.cashcard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import net.minidev.json.JSONArray;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ReactiveCashcardApplicationTests {
+
+    private static final String OWNER_SARAH = "sarah1";
+    private static final String PASSWORD_SARAH = "abc123";
+    private static final String PATH_SARAH_OWNERSHIP = "/cashcards/99";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    private WebTestClient sarah() {
+        return webTestClient.mutate()
+                .defaultHeaders(headers -> headers.setBasicAuth(OWNER_SARAH, PASSWORD_SARAH))
+                .build();
+    }
+
+    private EntityExchangeResult<String> get(WebTestClient client, String uri) {
+        return client.get().uri(uri).exchange().expectBody(String.class).returnResult();
+    }
+
+    @Nested
+    class GetRead {
+        @Test
+        void whenCashCardExist_returnACashCard() {
+            EntityExchangeResult<String> response = get(sarah(), PATH_SARAH_OWNERSHIP);
+
+            DocumentContext documentContext = JsonPath.parse(response.getResponseBody());
+            Number id = documentContext.read("$.id");
+            Double amount = documentContext.read("$.amount");
+
+            assertThat(response.getStatus()).isEqualTo(HttpStatus.OK);
+            assertThat(id).isEqualTo(99);
+            assertThat(amount).isEqualTo(123.45);
+        }
+
+        @Test
+        void whenCashCardIsUnchanged_returnNotModified() {
+            String eTag = get(sarah(), PATH_SARAH_OWNERSHIP).getResponseHeaders().getETag();
+
+            sarah().get().uri(PATH_SARAH_OWNERSHIP)
+                    .ifNoneMatch(eTag)
+                    .exchange()
+                    .expectStatus().isNotModified()
+                    .expectBody().isEmpty();
+        }
+
+        @Test
+        void whenCashCardBelongsToSomeoneElse_returnNotFound() {
+            EntityExchangeResult<String> response = get(sarah(), "/cashcards/102");
+
+            assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_FOUND);
+        }
+
+        @Test
+        void whenRequestPageAndSortField_returnASortedPageOfCashCards() {
+            EntityExchangeResult<String> response = get(sarah(), "/cashcards?page=0&size=1&sort=amount,desc");
+
+            DocumentContext documentContext = JsonPath.parse(response.getResponseBody());
+            JSONArray read = documentContext.read("$[*]");
+            double amount = documentContext.read("$[0].amount");
+
+            assertThat(response.getStatus()).isEqualTo(HttpStatus.OK);
+            assertThat(read.size()).isEqualTo(1);
+            assertThat(amount).isEqualTo(150.00);
+        }
+
+        @Test
+        void whenListIsRequestedWithNoParameters_returnASortedPageOfCashCardsUsingDefaultValues() {
+            EntityExchangeResult<String> response = get(sarah(), "/cashcards");
+
+            JSONArray amounts = JsonPath.parse(response.getResponseBody()).read("$..amount");
+
+            assertThat(response.getStatus()).isEqualTo(HttpStatus.OK);
+            assertThat(amounts).containsExactly(1.00, 123.45, 150.00);
+        }
+
+        @Test
+        void whenSummaryIsRequested_returnAggregatesOfOwnedCashCards() {
+            EntityExchangeResult<String> response = get(sarah(), "/cashcards/summary");
+
+            DocumentContext documentContext = JsonPath.parse(response.getResponseBody());
+            Number cardCount = documentContext.read("$.cardCount");
+            Double totalAmount = documentContext.read("$.totalAmount");
+
+            assertThat(response.getStatus()).isEqualTo(HttpStatus.OK);
+            assertThat(cardCount).isEqualTo(3);
+            assertThat(totalAmount).isEqualTo(274.45);
+        }
+
+        @Test
+        void whenScrollingWithCursor_returnConsecutiveWindowsSortedByAmount() {
+            EntityExchangeResult<String> first = get(sarah(), "/cashcards/scroll?size=2");
+            DocumentContext firstWindow = JsonPath.parse(first.getResponseBody());
+            String next = firstWindow.read("$.next");
+
+            EntityExchangeResult<String> second = get(sarah(), "/cashcards/scroll?size=2&cursor=" + next);
+            DocumentContext secondWindow = JsonPath.parse(second.getResponseBody());
+
+            assertThat(first.getStatus()).isEqualTo(HttpStatus.OK);
+            assertThat(firstWindow.<JSONArray>read("$.content[*].id")).containsExactly(100, 99);
+            assertThat(secondWindow.<JSONArray>read("$.content[*].id")).containsExactly(101);
+            assertThat(secondWindow.<String>read("$.next")).isNull();
+        }
+
+        @Test
+        void whenExportIsRequested_streamEveryCashCardAsOneJsonLine() {
+            EntityExchangeResult<String> response = get(sarah(), "/cashcards/export");
+
+            List<Number> ids = response.getResponseBody().lines()
+                    .map(line -> JsonPath.parse(line).<Number>read("$.id"))
+                    .toList();
+
+            assertThat(response.getStatus()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getResponseHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+            assertThat(ids).containsExactly(100, 99, 101);
+        }
+    }
+
+    @Nested
+    class Write {
+        @Test
+        void whenCreateANewCashCard_ReturnStatusCreated() {
+            EntityExchangeResult<Void> created = sarah().post().uri("/cashcards")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"amount\": 250.00}")
+                    .exchange()
+                    .expectBody(Void.class)
+                    .returnResult();
+            URI location = created.getResponseHeaders().getLocation();
+
+            EntityExchangeResult<String> response = get(sarah(), location.getPath());
+            Double amount = JsonPath.parse(response.getResponseBody()).read("$.amount");
+
+            assertThat(created.getStatus()).isEqualTo(HttpStatus.CREATED);
+            assertThat(response.getStatus()).isEqualTo(HttpStatus.OK);
+            assertThat(amount).isEqualTo(250.00);
+        }
+
+        @Test
+        void whenUpdatingAnExistingCashCard_updateIt() {
+            sarah().put().uri(PATH_SARAH_OWNERSHIP)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"amount\": 19.99}")
+                    .exchange()
+                    .expectStatus().isNoContent();
+
+            EntityExchangeResult<String> response = get(sarah(), PATH_SARAH_OWNERSHIP);
+            Double amount = JsonPath.parse(response.getResponseBody()).read("$.amount");
+
+            assertThat(amount).isEqualTo(19.99);
+        }
+
+        @Test
+        void whenIfMatchIsStale_rejectUpdateAndDelete() {
+            String eTag = get(sarah(), PATH_SARAH_OWNERSHIP).getResponseHeaders().getETag();
+            sarah().post().uri("/cashcards/99/adjust")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"amount\": 1.00}")
+                    .exchange()
+                    .expectStatus().isNoContent();
+
+            sarah().put().uri(PATH_SARAH_OWNERSHIP)
+                    .ifMatch(eTag)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"amount\": 19.99}")
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+            sarah().delete().uri(PATH_SARAH_OWNERSHIP)
+                    .ifMatch(eTag)
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        }
+
+        @Test
+        void whenDebitExceedsBalance_rejectWithConflict() {
+            sarah().post().uri("/cashcards/100/adjust")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"amount\": -1.01}")
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+            sarah().post().uri("/cashcards/100/adjust")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"amount\": -1.00}")
+                    .exchange()
+                    .expectStatus().isNoContent();
+            sarah().post().uri("/cashcards/102/adjust")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"amount\": 1.00}")
+                    .exchange()
+                    .expectStatus().isNotFound();
+        }
+
+        @Test
+        void existingCashCard_delete() {
+            sarah().delete().uri(PATH_SARAH_OWNERSHIP).exchange().expectStatus().isNoContent();
+            sarah().delete().uri("/cashcards/102").exchange().expectStatus().isNotFound();
+
+            assertThat(get(sarah(), PATH_SARAH_OWNERSHIP).getStatus()).isEqualTo(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @Nested
+    class WireFormat {
+        @Test
+        void whenCborIsAccepted_returnACashCardAsCbor() throws IOException {
+            EntityExchangeResult<byte[]> response = sarah().get().uri(PATH_SARAH_OWNERSHIP)
+                    .accept(MediaType.APPLICATION_CBOR)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                    .expectBody(byte[].class)
+                    .returnResult();
+
+            CashCard cashCard = new ObjectMapper(new CBORFactory())
+                    .readValue(response.getResponseBody(), CashCard.class);
+
+            assertThat(cashCard.amount()).isEqualTo(new BigDecimal("123.45"));
+        }
+
+        @Test
+        void whenAnyTypeIsAccepted_returnJson() {
+            sarah().get().uri(PATH_SARAH_OWNERSHIP)
+                    .accept(MediaType.ALL)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().contentType(MediaType.APPLICATION_JSON);
+        }
+    }
+
+    @Nested
+    class Security {
+        @Test
+        void whenUsingBadCredentials_rejectRequest() {
+            webTestClient.get().uri(PATH_SARAH_OWNERSHIP)
+                    .headers(headers -> headers.setBasicAuth(OWNER_SARAH, "BAD-PASSWORD"))
+                    .exchange()
+                    .expectStatus().isUnauthorized();
+        }
+
+        @Test
+        void whenUserNotOwnAnyCard_rejectUser() {
+            webTestClient.get().uri(PATH_SARAH_OWNERSHIP)
+                    .headers(headers -> headers.setBasicAuth("hank-owns-no-cards", "qrs456"))
+                    .exchange()
+                    .expectStatus().isForbidden();
+        }
+
+        @Test
+        void whenTokenIsValid_returnACashCard() {
+            EntityExchangeResult<String> tokenResponse = sarah().post().uri("/auth/token")
+                    .exchange()
+                    .expectBody(String.class)
+                    .returnResult();
+            String token = JsonPath.parse(tokenResponse.getResponseBody()).read("$.token");
+
+            webTestClient.get().uri(PATH_SARAH_OWNERSHIP)
+                    .headers(headers -> headers.setBearerAuth(token))
+                    .exchange()
+                    .expectStatus().isOk();
+            webTestClient.get().uri(PATH_SARAH_OWNERSHIP)
+                    .headers(headers -> headers.setBearerAuth("A" + token))
+                    .exchange()
+                    .expectStatus().isUnauthorized();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package pl.joannaszczesna.cashcard;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import net.minidev.json.JSONArray;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "cashcard.shards.count=4")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ShardedCashcardApplicationTests {
+
+    private static final String OWNER_SARAH = "sarah1";
+    private static final String PASSWORD_SARAH = "abc123";
+    // floorMod("sarah1".hashCode(), 4) and floorMod("john2".hashCode(), 4)
+    private static final int SHARD_SARAH = 2;
+    private static final int SHARD_JOHN = 3;
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    ShardRoutingDataSource dataSource;
+
+    @Autowired
+    CashCardRepository cashCardRepository;
+
+    private TestRestTemplate sarah() {
+        return restTemplate.withBasicAuth(OWNER_SARAH, PASSWORD_SARAH);
+    }
+
+    private URI create(TestRestTemplate client, String amount) {
+        ResponseEntity<Void> response = client.postForEntity("/cashcards",
+                new CashCard(null, new BigDecimal(amount), null), Void.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        return response.getHeaders().getLocation();
+    }
+
+    private static long idOf(URI location) {
+        String path = location.getPath();
+        return Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+    }
+
+    private List<String> ownersInShard(int shard, long id) {
+        return new JdbcTemplate(dataSource.shards().get(shard))
+                .queryForList("SELECT owner FROM cash_card WHERE id = ?", String.class, id);
+    }
+
+    @Test
+    void whenCashCardIsCreated_storeItInTheShardOfItsOwner() {
+        long sarahCardId = idOf(create(sarah(), "10.00"));
+        long johnCardId = idOf(create(restTemplate.withBasicAuth("john2", "xyz789"), "20.00"));
+
+        // above the explicit ids of data.sql
+        assertThat(sarahCardId).isGreaterThan(102);
+        assertThat(johnCardId).isGreaterThan(102);
+        assertThat(sarahCardId % 4).isEqualTo(SHARD_SARAH);
+        assertThat(johnCardId % 4).isEqualTo(SHARD_JOHN);
+        assertThat(ownersInShard(SHARD_SARAH, sarahCardId)).containsExactly(OWNER_SARAH);
+        assertThat(ownersInShard(SHARD_JOHN, johnCardId)).containsExactly("john2");
+        assertThat(ownersInShard(0, sarahCardId)).isEmpty();
+    }
+
+    @Test
+    void whenCashCardsAreSeeded_moveThemToTheShardOfTheirOwner() {
+        ResponseEntity<String> seeded = sarah().getForEntity("/cashcards/99", String.class);
+
+        assertThat(seeded.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(JsonPath.parse(seeded.getBody()).<Double>read("$.amount")).isEqualTo(123.45);
+        assertThat(ownersInShard(SHARD_SARAH, 99)).containsExactly(OWNER_SARAH);
+        assertThat(ownersInShard(SHARD_JOHN, 102)).containsExactly("john2");
+        assertThat(ownersInShard(0, 99)).isEmpty();
+        assertThat(ownersInShard(0, 102)).isEmpty();
+    }
+
+    @Test
+    void whenCashCardsAreReadAndWritten_routeEveryRequestToTheOwnersShard() {
+        URI first = create(sarah(), "10.00");
+        URI second = create(sarah(), "20.00");
+
+        sarah().put(first, new CashCard(null, new BigDecimal("15.00"), null));
+        ResponseEntity<Void> adjusted = sarah().postForEntity(second + "/adjust",
+                new BalanceAdjustment(new BigDecimal("-5.00")), Void.class);
+        ResponseEntity<String> card = sarah().getForEntity(first, String.class);
+        ResponseEntity<String> list = sarah().getForEntity("/cashcards", String.class);
+        ResponseEntity<String> othersCard = restTemplate.withBasicAuth("john2", "xyz789")
+                .getForEntity(first, String.class);
+
+        assertThat(adjusted.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(JsonPath.parse(card.getBody()).<Double>read("$.amount")).isEqualTo(15.00);
+        assertThat(JsonPath.parse(list.getBody()).<JSONArray>read("$[*].amount"))
+                .containsExactly(1.00, 15.00, 15.00, 123.45, 150.00);
+        assertThat(othersCard.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void whenCashCardsAreCreatedInBatch_storeThemInTheShardOfTheirOwner() {
+        ResponseEntity<String> response = sarah().postForEntity("/cashcards/batch",
+                List.of(new CashCard(null, new BigDecimal("1.00"), null),
+                        new CashCard(null, new BigDecimal("2.00"), null)), String.class);
+
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        List<Number> ids = documentContext.read("$[*].id");
+
+        assertThat(ids).hasSize(2).allSatisfy(id -> assertThat(id.longValue() % 4).isEqualTo(SHARD_SARAH));
+        sarah().delete("/cashcards/" + ids.get(0));
+        assertThat(ownersInShard(SHARD_SARAH, ids.get(0).longValue())).isEmpty();
+        assertThat(ownersInShard(SHARD_SARAH, ids.get(1).longValue())).containsExactly(OWNER_SARAH);
+    }
+
+    @Test
+    void whenCallHasNoShardKey_failInsteadOfUsingTheDefaultShard() {
+        assertThatThrownBy(() -> cashCardRepository.findAll()).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> cashCardRepository.findById(99L)).isInstanceOf(IllegalStateException.class);
+    }
+}
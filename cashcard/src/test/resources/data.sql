@@ -2,3 +2,13 @@ INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (99, 123.45, 'sarah1');
 INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (100, 1.00, 'sarah1');
 INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (101, 150.00, 'sarah1');
 INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (102, 200.00, 'john2');
+
+-- passwords are BCrypt hashes of abc123, qrs456, xyz789 and abc123
+INSERT INTO USERS(USERNAME, PASSWORD, ENABLED) VALUES ('sarah1', '$2b$10$rBqk6AsdKa4VOf1JwMzxmORZdSmIl5VSqxshNZij.v6JS8WHaeI/i', TRUE);
+INSERT INTO USERS(USERNAME, PASSWORD, ENABLED) VALUES ('hank-owns-no-cards', '$2b$10$B.XLJ5D98qkea3WnUKfB5eMtwif3.0TX7sJBhs8GeUkyubrTrzrcq', TRUE);
+INSERT INTO USERS(USERNAME, PASSWORD, ENABLED) VALUES ('john2', '$2b$10$SbaeNSbdTe3mksYzlvTgju8MlHxUcyOYIGpg35mDXXvvQ3pRWKZRG', TRUE);
+INSERT INTO USERS(USERNAME, PASSWORD, ENABLED) VALUES ('ops1', '$2b$10$rBqk6AsdKa4VOf1JwMzxmORZdSmIl5VSqxshNZij.v6JS8WHaeI/i', TRUE);
+INSERT INTO AUTHORITIES(USERNAME, AUTHORITY) VALUES ('sarah1', 'ROLE_CARD-OWNER');
+INSERT INTO AUTHORITIES(USERNAME, AUTHORITY) VALUES ('hank-owns-no-cards', 'ROLE_NON-OWNER');
+INSERT INTO AUTHORITIES(USERNAME, AUTHORITY) VALUES ('john2', 'ROLE_CARD-OWNER');
+INSERT INTO AUTHORITIES(USERNAME, AUTHORITY) VALUES ('ops1', 'ROLE_OPS');